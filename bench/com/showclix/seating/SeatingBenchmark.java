@@ -0,0 +1,190 @@
+package com.showclix.seating;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+
+/**
+ * JMH benchmarks for building a seating chart, pre-reserving seats and
+ * placing groups, across chart sizes, how full the chart is before the
+ * requests start and the mix of group sizes requested. Group requests are
+ * measured both when they succeed and when every request comes back "Not
+ * Available", which is when the search has the most work to do.
+ * 
+ * Charts that fill up during a measurement are restored from a snapshot of
+ * the starting chart, so every request is made against a chart that is about
+ * as full as the prefilled parameter says. The reserveAndRelease benchmark
+ * releases groups as it goes instead. See the Benchmarks section of the
+ * README for how to run them with the GC profiler.
+ * 
+ * @version 1.0
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatingBenchmark {
+
+	// Number of group sizes generated up front and cycled through
+	private static final int GROUPS = 1024;
+
+	// Rows x seats per row
+	@Param({ "3x11", "100x100", "1000x1000" })
+	public String chart;
+
+	// Percent of the seats pre-reserved before measuring
+	@Param({ "0", "50", "90" })
+	public int prefilled;
+
+	// Mix of group sizes: "uniform" 1 to 10, "small" mostly 1 to 4 and
+	// "large" 6 to 10
+	@Param({ "uniform", "small", "large" })
+	public String groupSizes;
+
+	private int rowCount;
+	private int seatCount;
+
+	// Chart used by the benchmarks that succeed, and a snapshot of it to
+	// restore once it fills up
+	private Seating seating;
+	private byte[] snapshot;
+
+	// Chart where no group of two or more seats can be placed
+	private Seating full;
+
+	private final int[] groups = new int[GROUPS];
+	private final int[] seats = new int[GROUPS];
+	private int next = 0;
+
+	private final SeatRange range = new SeatRange();
+
+	// Groups placed by reserveAndRelease, the oldest is released once every
+	// slot is in use
+	private final SeatRange[] held = new SeatRange[256];
+	private int nextHeld = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws InvalidSeatException {
+		String[] size = chart.split("x");
+		rowCount = Integer.parseInt(size[0]);
+		seatCount = Integer.parseInt(size[1]);
+
+		Random rand = new Random(42);
+		for (int i = 0; i < GROUPS; i++) {
+			groups[i] = nextGroupSize(rand);
+			seats[i] = rand.nextInt(rowCount * seatCount);
+		}
+
+		// Pre-reserve random seats until the chart is as full as asked for
+		seating = new Seating(rowCount, seatCount);
+		int target = (int) ((long) rowCount * seatCount * prefilled / 100);
+		while (rowCount * seatCount - seating.getAvailableSeats() < target) {
+			int row = rand.nextInt(rowCount) + 1;
+			int column = rand.nextInt(seatCount) + 1;
+			if (!seating.isSeatReserved(row, column)) {
+				seating.preReserveSeat(row, column);
+			}
+		}
+		snapshot = seating.toBytes();
+		for (int i = 0; i < held.length; i++) {
+			held[i] = new SeatRange();
+		}
+
+		// Every other seat taken leaves no two free seats next to each other
+		full = new Seating(rowCount, seatCount);
+		for (int row = 1; row <= rowCount; row++) {
+			for (int column = row % 2 + 1; column <= seatCount; column += 2) {
+				full.preReserveSeat(row, column);
+			}
+		}
+	}
+
+	private int nextGroupSize(Random rand) {
+		if (groupSizes.equals("small")) {
+			int roll = rand.nextInt(100);
+			return roll < 40 ? 2 : roll < 65 ? 1 : roll < 85 ? 4 : roll < 95 ? 3 : rand.nextInt(6) + 5;
+		} else if (groupSizes.equals("large")) {
+			return rand.nextInt(5) + 6;
+		}
+		return rand.nextInt(10) + 1;
+	}
+
+	/**
+	 * Puts the chart back to how it started once it is too full to place the
+	 * next group
+	 */
+	private void restoreIfFull(int total) throws IOException {
+		if (seating.getAvailableSeats() < total + rowCount * seatCount / 20) {
+			seating = Seating.fromBytes(snapshot);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Seating construct() {
+		return new Seating(rowCount, seatCount);
+	}
+
+	@Benchmark
+	public int preReserveSeat() throws InvalidSeatException, IOException {
+		int seat = seats[next++ & (GROUPS - 1)];
+		restoreIfFull(1);
+		if (!seating.isSeatReserved(seat / seatCount + 1, seat % seatCount + 1)) {
+			seating.preReserveSeat(seat / seatCount + 1, seat % seatCount + 1);
+		}
+		return seating.getAvailableSeats();
+	}
+
+	@Benchmark
+	public String requestSeats() throws MaximumRequestsExceededException, IOException {
+		int total = groups[next++ & (GROUPS - 1)];
+		restoreIfFull(total);
+		return seating.requestSeats(total);
+	}
+
+	@Benchmark
+	public SeatRange requestSeatRange() throws MaximumRequestsExceededException, IOException {
+		int total = groups[next++ & (GROUPS - 1)];
+		restoreIfFull(total);
+		seating.requestSeats(total, range);
+		return range;
+	}
+
+	/**
+	 * A mixed workload where every group placed is released again 256
+	 * requests later, the way abandoned carts and refunds free up seats. The
+	 * chart stays at a steady fill level without being restored
+	 */
+	@Benchmark
+	public SeatRange reserveAndRelease() throws MaximumRequestsExceededException, InvalidSeatException {
+		SeatRange slot = held[nextHeld++ & (held.length - 1)];
+		seating.release(slot);
+		seating.requestSeats(groups[next++ & (GROUPS - 1)], slot);
+		return slot;
+	}
+
+	@Benchmark
+	public String requestSeatsNotAvailable() throws MaximumRequestsExceededException {
+		return full.requestSeats(Math.max(2, groups[next++ & (GROUPS - 1)]));
+	}
+}
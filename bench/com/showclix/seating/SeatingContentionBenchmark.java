@@ -0,0 +1,128 @@
+package com.showclix.seating;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+
+/**
+ * JMH benchmark comparing the latency of group requests on a concurrent
+ * Seating chart, which locks the rows it searches, with LockFreeSeating when
+ * 16 threads share one chart and are all after the same center seats. The
+ * requests are sampled, so JMH reports the p50, p99 and p99.9 latency of each
+ * engine and not just the average.
+ * 
+ * Once a request comes back "Not Available" the chart is replaced by a new
+ * empty one, so the requests are measured against a chart that is filling up
+ * rather than one that is full. Building the new chart is counted in the
+ * request that found the chart full, which only lands in the far tail.
+ * 
+ * @version 1.0
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class SeatingContentionBenchmark {
+
+	// Number of group sizes generated up front for each thread
+	private static final int GROUPS = 1024;
+
+	// "locked" for a concurrent Seating chart, "lockFree" for LockFreeSeating
+	@Param({ "locked", "lockFree" })
+	public String engine;
+
+	// Rows x seats per row, the small chart has every thread after the same
+	// few seats
+	@Param({ "10x20", "1000x1000" })
+	public String chart;
+
+	private int rowCount;
+	private int seatCount;
+
+	// The chart being filled, only the one for the engine is used
+	private volatile Seating seating;
+	private volatile LockFreeSeating lockFree;
+
+	/**
+	 * The group sizes each thread requests, mostly couples and small families
+	 */
+	@State(Scope.Thread)
+	public static class Groups {
+		final int[] sizes = new int[GROUPS];
+		final SeatRange range = new SeatRange();
+		int next = 0;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Random rand = new Random(Thread.currentThread().getId());
+			for (int i = 0; i < GROUPS; i++) {
+				sizes[i] = rand.nextInt(4) + 1;
+			}
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		String[] size = chart.split("x");
+		rowCount = Integer.parseInt(size[0]);
+		seatCount = Integer.parseInt(size[1]);
+		seating = null;
+		lockFree = null;
+		if (engine.equals("locked")) {
+			seating = new Seating(rowCount, seatCount, SearchMode.INDEX, true);
+		} else {
+			lockFree = new LockFreeSeating(rowCount, seatCount);
+		}
+	}
+
+	@Benchmark
+	public SeatRange requestSeats(Groups groups) throws MaximumRequestsExceededException {
+		int total = groups.sizes[groups.next++ & (GROUPS - 1)];
+		Seating seating = this.seating;
+		if (seating != null) {
+			if (!seating.requestSeats(total, groups.range)) {
+				refill(seating);
+			}
+		} else {
+			LockFreeSeating lockFree = this.lockFree;
+			if (!lockFree.requestSeats(total, groups.range)) {
+				refill(lockFree);
+			}
+		}
+		return groups.range;
+	}
+
+	/**
+	 * Replaces the chart with an empty one, unless another thread already
+	 * replaced it
+	 * 
+	 * @param full
+	 *            - The chart that could not place a group
+	 */
+	private synchronized void refill(Object full) {
+		if (full == seating) {
+			seating = new Seating(rowCount, seatCount, SearchMode.INDEX, true);
+		} else if (full == lockFree) {
+			lockFree = new LockFreeSeating(rowCount, seatCount);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.showclix.seating;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * SeatingJournalBenchmark
+ * 
+ * Measures how many group requests per second a concurrent seating chart can
+ * answer when every reservation has to be on disk before it is answered,
+ * compared to keeping the reservations in memory only. Each thread sends
+ * requests one after another, so the more threads there are the more
+ * requests can share a single force of the journal.
+ * 
+ * Usage: SeatingJournalBenchmark [THREADS] [REQUESTS_PER_THREAD] [JOURNAL_FILE]
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingJournalBenchmark {
+
+	// Size of the seating chart, large enough that it never fills up
+	private static final int ROWS = 1000;
+	private static final int SEATS = 1000;
+
+	/**
+	 * Runs the requests against the chart on the number of threads specified
+	 * 
+	 * @return Elapsed time in nanoseconds
+	 * @throws InterruptedException
+	 */
+	private static long run(final Seating seating, int threads, final int requests) throws InterruptedException {
+		final int maxGroup = Settings.getInstance().getInt("seating.requests.max", 10);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			final Random rand = new Random(i);
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < requests; j++) {
+							seating.requestSeats(rand.nextInt(maxGroup) + 1);
+						}
+					} catch (InterruptedException | MaximumRequestsExceededException e) {
+						Output.getInstance().println("Benchmark thread failed: " + e.getMessage());
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+		long started = System.nanoTime();
+		start.countDown();
+		done.await();
+		return System.nanoTime() - started;
+	}
+
+	private static void report(String name, int total, long elapsed) {
+		double seconds = elapsed / 1e9;
+		Output.getInstance().println(name + String.format("%10.0f", total / seconds) + " requests/sec (" + String.format("%.3f", seconds) + " s)");
+	}
+
+	/**
+	 * Entry point into the benchmark
+	 * 
+	 * @param args
+	 *            - Optional number of threads, requests per thread and path of
+	 *            the journal file to use
+	 * @throws InterruptedException
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws InterruptedException, IOException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		File journalFile = args.length > 2 ? new File(args[2]) : File.createTempFile("seating", ".journal");
+		journalFile.delete();
+		int total = threads * requests;
+
+		report("In memory: ", total, run(new Seating(ROWS, SEATS, SearchMode.INDEX, true), threads, requests));
+
+		try (SeatingJournal journal = new SeatingJournal(journalFile.getPath())) {
+			Seating seating = journal.recover(ROWS, SEATS, SearchMode.INDEX, true);
+			report("Journaled: ", total, run(seating, threads, requests));
+			Output.getInstance().println("Forces:    " + journal.getForces() + " (" + String.format("%.1f", (double) total / Math.max(1, journal.getForces())) + " requests per force)");
+		} finally {
+			journalFile.delete();
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package com.showclix.driver;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * SeatingBatch
+ * 
+ * Replays many input files in the SampleInput.txt format at once, for example
+ * every recorded on-sale scenario after a configuration change. Each file is
+ * replayed by it's own SeatingDriver and Seating instance on a pool of worker
+ * threads, and it's results are written to a file of the same name with
+ * ".out" added in the output directory.
+ * 
+ * A file can change the configuration for it's own run with a properties file
+ * next to it of the same name, for example scenario1.properties for
+ * scenario1.txt. Anything it does not set comes from the configuration file.
+ * 
+ * A file that can not be replayed does not stop the others. Why it failed is
+ * written to it's own results file, when that could be opened, and it is
+ * counted in the failed files of the summary.
+ * 
+ * Usage: SeatingDriver --batch [DIRECTORY|GLOB] [OUTPUT_DIRECTORY] [THREADS]
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingBatch {
+
+	// Size of the output buffer of each file
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Directory the results are written to, null to write them next to the
+	// input files
+	private final Path outputDirectory;
+
+	// Number of files replayed at the same time
+	private final int threads;
+
+	// Settings every file starts from
+	private final Settings settings;
+
+	private final AtomicInteger files = new AtomicInteger();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	private final AtomicInteger failedFiles = new AtomicInteger();
+
+	/**
+	 * Creates a batch that writes it's results to the directory specified
+	 * 
+	 * @param outputDirectory
+	 *            - Directory to write the results to, null to write them next
+	 *            to the input files
+	 * @param threads
+	 *            - Number of files to replay at the same time
+	 */
+	public SeatingBatch(Path outputDirectory, int threads) {
+		this.outputDirectory = outputDirectory;
+		this.threads = threads;
+		this.settings = Settings.getInstance();
+	}
+
+	/**
+	 * Finds the input files of a batch. A directory holds every file in it
+	 * other than properties files and results, anything else is a glob of
+	 * file names in it's parent directory, for example "scenarios/*.txt"
+	 * 
+	 * @param pattern
+	 *            - Directory or glob of the input files
+	 * @return The input files, sorted by name
+	 * @throws IOException
+	 *             If the directory could not be read
+	 */
+	public static List<Path> findInputs(String pattern) throws IOException {
+		Path path = Paths.get(pattern);
+		Path directory = path;
+		String glob = "*";
+		if (!Files.isDirectory(path)) {
+			directory = path.getParent() != null ? path.getParent() : Paths.get(".");
+			glob = path.getFileName().toString();
+		}
+
+		List<Path> inputs = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+			for (Path input : stream) {
+				String name = input.getFileName().toString();
+				if (Files.isRegularFile(input) && !name.endsWith(".properties") && !name.endsWith(".out")) {
+					inputs.add(input);
+				}
+			}
+		}
+		Collections.sort(inputs);
+		return inputs;
+	}
+
+	/**
+	 * Replays every input file and waits until they are all done
+	 * 
+	 * @param inputs
+	 *            - Input files to replay
+	 * @return Elapsed time in nanoseconds
+	 * @throws IOException
+	 *             If the output directory could not be created
+	 * @throws InterruptedException
+	 */
+	public long run(List<Path> inputs) throws IOException, InterruptedException {
+		if (outputDirectory != null) {
+			Files.createDirectories(outputDirectory);
+		}
+
+		long started = System.nanoTime();
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		for (final Path input : inputs) {
+			workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					replay(input);
+				}
+			});
+		}
+		workers.shutdown();
+		workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		return System.nanoTime() - started;
+	}
+
+	/**
+	 * Replays a single input file into it's own output file
+	 * 
+	 * @param input
+	 *            - Input file to replay
+	 */
+	private void replay(Path input) {
+		String name = input.getFileName().toString();
+		Path directory = outputDirectory != null ? outputDirectory : input.toAbsolutePath().getParent();
+		Output output = null;
+		boolean failed = false;
+		try {
+			output = Output.open(BUFFER_SIZE, FileChannel.open(directory.resolve(name + ".out"), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+			SeatingDriver driver = new SeatingDriver(settingsFor(input), output);
+			driver.initialize();
+			driver.importFile(input.toString());
+			requests.addAndGet(driver.getRequests());
+			failures.addAndGet(driver.getFailures());
+		} catch (IOException | RuntimeException e) {
+			failed = true;
+			if (output != null) {
+				output.println("Failed to replay " + input + ": " + e);
+			}
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+					failed = true;
+				}
+			}
+		}
+		if (failed) {
+			failedFiles.incrementAndGet();
+		}
+		files.incrementAndGet();
+	}
+
+	/**
+	 * Get the settings for an input file, overridden by the properties file
+	 * next to it if there is one
+	 */
+	private Settings settingsFor(Path input) throws IOException {
+		return settingsFor(input, settings);
+	}
+
+	/**
+	 * Get the settings specified, overridden by the properties file next to
+	 * the input file if there is one
+	 */
+	static Settings settingsFor(Path input, Settings settings) throws IOException {
+		Path overrides = propertiesFor(input);
+		return Files.isRegularFile(overrides) ? settings.override(overrides.toString()) : settings;
+	}
+
+	/**
+	 * Get the path of the properties file that goes with an input file, for
+	 * example scenario1.properties for scenario1.txt
+	 */
+	static Path propertiesFor(Path input) {
+		String name = input.getFileName().toString();
+		int extension = name.lastIndexOf('.');
+		return input.resolveSibling((extension > 0 ? name.substring(0, extension) : name) + ".properties");
+	}
+
+	public int getFiles() {
+		return files.get();
+	}
+
+	public int getRequests() {
+		return requests.get();
+	}
+
+	public int getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Get the number of input files that could not be replayed, see the
+	 * results file of each one for why
+	 * 
+	 * @return Number of failed files
+	 */
+	public int getFailedFiles() {
+		return failedFiles.get();
+	}
+
+	/**
+	 * Prints how many files were replayed and how fast, the total number of
+	 * group requests, the number of lines that failed and the number of files
+	 * that could not be replayed
+	 * 
+	 * @param elapsed
+	 *            - Elapsed time of the batch in nanoseconds
+	 */
+	public void printSummary(long elapsed) {
+		double seconds = elapsed / 1e9;
+		Output output = Output.getInstance();
+		output.println("Files:     " + getFiles() + String.format(" (%.1f files/sec, %.3f s)", getFiles() / Math.max(seconds, 1e-9), seconds));
+		output.println("Requests:  " + getRequests());
+		output.println("Failures:  " + getFailures());
+		output.println("Failed:    " + getFailedFiles() + " files");
+	}
+
+	/**
+	 * Entry point into the batch
+	 * 
+	 * @param args
+	 *            - Directory or glob of the input files, then optionally the
+	 *            output directory and the number of threads
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			Output.getInstance().println("Usage: SeatingDriver --batch [DIRECTORY|GLOB] [OUTPUT_DIRECTORY] [THREADS]");
+			return;
+		}
+		Path outputDirectory = args.length > 1 ? Paths.get(args[1]) : null;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		SeatingBatch batch = new SeatingBatch(outputDirectory, threads);
+		try {
+			batch.printSummary(batch.run(findInputs(args[0])));
+		} catch (IOException | InterruptedException e) {
+			e.printStackTrace();
+		}
+		Output.getInstance().flush();
+	}
+}
@@ -1,13 +1,14 @@
 package com.showclix.driver;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Scanner;
+import java.util.Arrays;
 
+import com.showclix.seating.SeatRange;
 import com.showclix.seating.Seating;
 import com.showclix.seating.exceptions.InvalidSeatException;
 import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.InputParser;
 import com.showclix.seating.util.Output;
 import com.showclix.seating.util.Settings;
 
@@ -30,8 +31,40 @@ public class SeatingDriver {
 	private Seating seating;
 	private int linesRead = 0;
 
+	// Reused for the result of every group request
+	private final SeatRange result = new SeatRange();
+
+	// Where the seating chart is configured from and the results are printed
+	// to, the singletons unless the driver is running one file of a batch
+	private final Settings settings;
+	private final Output output;
+
+	// Number of group requests made, and the number of lines that could not
+	// be processed (invalid seats or groups larger than the maximum)
+	private int requests = 0;
+	private int failures = 0;
+
+	// Number of lines that can be waiting between the stages of a pipelined
+	// replay, 0 to replay on one thread
+	private final int pipelineCapacity;
+
 	public SeatingDriver() {
+		this(Settings.getInstance(), Output.getInstance());
+	}
 
+	/**
+	 * Creates a driver that configures it's seating chart from the settings
+	 * specified and prints to the output specified instead of the singletons
+	 * 
+	 * @param settings
+	 *            - Settings to configure the seating chart with
+	 * @param output
+	 *            - Output the results are printed to
+	 */
+	public SeatingDriver(Settings settings, Output output) {
+		this.settings = settings;
+		this.output = output;
+		this.pipelineCapacity = settings.getBoolean("seating.pipeline", false) ? settings.getInt("seating.pipeline.capacity", 4096) : 0;
 	}
 
 	/**
@@ -42,7 +75,7 @@ public class SeatingDriver {
 	public void initialize() {
 		// If no configuration file is found, the values 3 and 11 will be used
 		// per original spec
-		this.seating = new Seating(Settings.getInstance().getInt("seating.chart.rowCount", 3), Settings.getInstance().getInt("seating.chart.seatCount", 11));
+		this.seating = new Seating(settings.getInt("seating.chart.rowCount", 3), settings.getInt("seating.chart.seatCount", 11), settings);
 
 	}
 
@@ -53,22 +86,11 @@ public class SeatingDriver {
 	 * console/stdout
 	 */
 	public void listen() {
-		Scanner scanner = new Scanner(System.in);
-		scanner.useDelimiter("\n");
-		while (scanner.hasNext()) {
-			// If it's the first line read, then parse for pre-reservations
-			if (linesRead == 0) {
-				parseReservations(scanner.next());
-			} else {
-				// otherwise, interpret the line as a number that represents a
-				// group size
-				// and try to find the best seating for the group
-				parseRequest(Integer.parseInt(scanner.next().replaceAll("[^0-9]", "")));
-			}
-			linesRead++;
+		try (InputParser parser = new InputParser(System.in)) {
+			parse(parser);
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
-		scanner.close();
-		Output.getInstance().println(seating.getAvailableSeats());
 	}
 
 	/**
@@ -82,49 +104,93 @@ public class SeatingDriver {
 	 *            - path/file name of the input data on disk
 	 */
 	public void importFile(String filePath) {
-		try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
+		try (InputParser parser = InputParser.open(filePath)) {
+			parse(parser);
+		} catch (IOException e) {
+			failures++;
+			report(output, e);
+		}
+
+		// uncomment to print seating table
+		//seating.print();
+	}
+
+	/**
+	 * Reads the input line by line. The bytes are decoded straight into seat
+	 * numbers and group sizes, so no Strings are created per line. When the
+	 * configuration asks for a pipeline, reading and printing run on their own
+	 * threads, see SeatingPipeline
+	 * 
+	 * @param parser
+	 *            - Parser reading the input
+	 * @throws IOException
+	 */
+	private void parse(InputParser parser) throws IOException {
+		if (pipelineCapacity > 0) {
+			parsePipelined(parser);
+		} else {
+			while (parser.nextLine()) {
 				// If it's the first line read, then parse for pre-reservations
 				if (linesRead == 0) {
-					parseReservations(line);
+					parseReservations(parser);
 				} else {
-					// otherwise, interpret the line as a number that represents
-					// a group size and try to find the best seating for the
-					// group
-					parseRequest(Integer.parseInt(line.replaceAll("[^0-9]", "")));
+					// otherwise, interpret the line as a number that represents a
+					// group size and try to find the best seating for the group.
+					// Lines without a number are skipped
+					int seatingRequest = parser.nextNumber();
+					if (seatingRequest >= 0) {
+						parseRequest(seatingRequest);
+					}
 				}
-
 				linesRead++;
 			}
-			Output.getInstance().println(seating.getAvailableSeats());
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
+		output.println(seating.getAvailableSeats());
+		if (seating.getStatistics() != null) {
+			seating.getStatistics().print(output);
+		}
+		output.flush();
+	}
 
-		// uncomment to print seating table
-		//seating.print();
+	/**
+	 * Replays the input through a SeatingPipeline, counting it's lines,
+	 * requests and failures the same as parse does
+	 * 
+	 * @param parser
+	 *            - Parser reading the input
+	 * @throws IOException
+	 */
+	private void parsePipelined(InputParser parser) throws IOException {
+		SeatingPipeline pipeline = new SeatingPipeline(seating, output, pipelineCapacity, linesRead == 0);
+		try {
+			pipeline.run(parser);
+		} finally {
+			linesRead += pipeline.getLinesRead();
+			requests += pipeline.getRequests();
+			failures += pipeline.getFailures();
+		}
 	}
 
 	/**
-	 * This is a helper method that will split the input line on space
-	 * characters and try to parse out the row and column of each entry. Once
-	 * parsed, a pre-reservation will be made on the seat.
+	 * This is a helper method that will read each seat on the line of
+	 * pre-reservations. Once read, a pre-reservation will be made on the seat.
 	 * 
-	 * @param line
-	 *            Input string, expected format: "R4C3 R3C9 R1C4 R8C4" etc
+	 * @param parser
+	 *            Parser positioned at the start of the line, expected format:
+	 *            "R4C3 R3C9 R1C4 R8C4" etc
 	 * @return True if the reservations were made successfully, false otherwise
+	 * @throws IOException
 	 */
-	private boolean parseReservations(String line) {
+	private boolean parseReservations(InputParser parser) throws IOException {
 		boolean success = false;
 		try {
-			String[] reservations = line.split(" ");
-			for (String reservation : reservations) {
-				this.seating.preReserveSeat(reservation);
+			while (parser.nextSeat()) {
+				this.seating.preReserveSeat(parser.getRow(), parser.getColumn());
 			}
 			success = true;
 		} catch (InvalidSeatException e) {
-			e.printStackTrace();
+			failures++;
+			report(output, e);
 		}
 		return success;
 	}
@@ -141,21 +207,95 @@ public class SeatingDriver {
 	 */
 	private boolean parseRequest(int seatingRequest) {
 		boolean success = false;
+		requests++;
 		try {
-			Output.getInstance().println(this.seating.requestSeats(seatingRequest));
+			this.seating.requestSeats(seatingRequest, result);
+			output.println(result);
 			success = true;
 		} catch (MaximumRequestsExceededException e) {
-			e.printStackTrace();
+			failures++;
+			report(output, e);
 		}
 		return success;
 	}
 
+	/**
+	 * Reports a line or file that could not be processed. The stack trace is
+	 * only printed when the results go to the singleton output. A driver
+	 * replaying one file of a batch just counts it's failures, so the stack
+	 * traces of many files are not mixed together on stderr
+	 * 
+	 * @param output
+	 *            - Output the results are printed to
+	 * @param e
+	 *            - Why the line or file could not be processed
+	 */
+	static void report(Output output, Exception e) {
+		if (output == Output.getInstance()) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Get the number of group requests made so far
+	 * 
+	 * @return Number of group requests
+	 */
+	public int getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Get the number of lines that could not be processed so far, or files
+	 * that could not be read
+	 * 
+	 * @return Number of failures
+	 */
+	public int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Switches the output to a buffered sink if the configuration file asks
+	 * for it, optionally writing to a file instead of stdout
+	 */
+	private static void configureOutput() {
+		Settings settings = Settings.getInstance();
+		if (!settings.getBoolean("seating.output.buffered", false)) {
+			return;
+		}
+		int bufferSize = settings.getInt("seating.output.bufferSize", 64 * 1024);
+		int flushInterval = settings.getInt("seating.output.flushInterval", 100);
+		String file = settings.getString("seating.output.file", "");
+		if (file.isEmpty()) {
+			Output.getInstance().setBuffered(bufferSize, flushInterval);
+		} else {
+			try {
+				Output.getInstance().setBuffered(bufferSize, flushInterval, new FileOutputStream(file).getChannel());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	/**
 	 * Entry point into the application
 	 * 
 	 * @param args
 	 */
 	public static void main(String[] args) {
+		configureOutput();
+
+		if (args.length > 0 && args[0].equals("--server")) {
+			// Serve a seating chart over TCP until the process is stopped
+			SeatingServer.main(args);
+			return;
+		} else if (args.length > 0 && args[0].equals("--batch")) {
+			// Replay every input file in a directory on a pool of threads
+			SeatingBatch.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+
 		// Create a new Seating Driver
 		SeatingDriver driver = new SeatingDriver();
 
@@ -0,0 +1,126 @@
+package com.showclix.driver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * SeatingLoadClient
+ * 
+ * A simple load generator for the SeatingServer. It opens a number of
+ * connections at once, each of which sends group requests one at a time and
+ * waits for the answer, and then reports how many requests per second the
+ * server answered.
+ * 
+ * Usage: SeatingLoadClient [CONNECTIONS] [REQUESTS_PER_CONNECTION] [PORT]
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingLoadClient {
+
+	// Number of connections to open at the same time
+	private final int connections;
+
+	// Number of group requests sent on each connection
+	private final int requests;
+
+	// Port the server is listening on
+	private final int port;
+
+	// Group sizes are picked between 1 and this value
+	private final int maxGroup;
+
+	// Totals across every connection
+	private final AtomicLong answered = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	public SeatingLoadClient(int connections, int requests, int port) {
+		this.connections = connections;
+		this.requests = requests;
+		this.port = port;
+		this.maxGroup = Settings.getInstance().getInt("seating.requests.max", 10);
+	}
+
+	/**
+	 * Opens every connection, waits for all of them to finish and prints the
+	 * results
+	 * 
+	 * @throws InterruptedException
+	 */
+	public void run() throws InterruptedException {
+		final CountDownLatch ready = new CountDownLatch(connections);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(connections);
+
+		ExecutorService executor = SeatingServer.newConnectionExecutor();
+		for (int i = 0; i < connections; i++) {
+			final Random rand = new Random(i);
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try (Socket socket = new Socket("localhost", port);
+							BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+						OutputStream out = socket.getOutputStream();
+						ready.countDown();
+						start.await();
+						for (int j = 0; j < requests; j++) {
+							out.write(((rand.nextInt(maxGroup) + 1) + "\n").getBytes(StandardCharsets.US_ASCII));
+							out.flush();
+							if (reader.readLine() == null) {
+								break;
+							}
+							answered.incrementAndGet();
+						}
+						out.write("QUIT\n".getBytes(StandardCharsets.US_ASCII));
+						out.flush();
+					} catch (IOException | InterruptedException e) {
+						failed.incrementAndGet();
+						ready.countDown();
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		// Only start timing once every connection is open
+		ready.await();
+		long started = System.nanoTime();
+		start.countDown();
+		done.await();
+		long elapsed = System.nanoTime() - started;
+		executor.shutdown();
+
+		double seconds = elapsed / 1e9;
+		Output.getInstance().println("Connections:       " + connections + " (" + failed.get() + " failed)");
+		Output.getInstance().println("Requests answered: " + answered.get());
+		Output.getInstance().println("Elapsed:           " + String.format("%.3f", seconds) + " s");
+		Output.getInstance().println("Requests/sec:      " + String.format("%.0f", answered.get() / seconds));
+	}
+
+	/**
+	 * Entry point into the load client
+	 * 
+	 * @param args
+	 *            - Optional number of connections, requests per connection
+	 *            and port
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int port = args.length > 2 ? Integer.parseInt(args[2]) : Settings.getInstance().getInt("seating.server.port", 7311);
+		new SeatingLoadClient(connections, requests, port).run();
+	}
+}
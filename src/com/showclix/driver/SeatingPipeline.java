@@ -0,0 +1,277 @@
+package com.showclix.driver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import com.showclix.seating.SeatRange;
+import com.showclix.seating.Seating;
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.InputParser;
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.RingBuffer;
+
+/**
+ * SeatingPipeline
+ * 
+ * Replays an input in three stages on three threads, so that reading the
+ * input and printing the results overlap with placing groups:
+ * 
+ * The parse stage reads the input and passes every pre-reservation and group
+ * request on as a command. The allocate stage, which is the thread calling
+ * run, makes the reservations on the seating chart one command at a time in
+ * the order they were read, so the chart ends up exactly the same as when the
+ * input is replayed on one thread. The emit stage prints the result of every
+ * group request in that same order.
+ * 
+ * The stages are linked by RingBuffers of commands and results that are
+ * created once and reused, and a stage that gets too far ahead waits for the
+ * next one to catch up.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingPipeline {
+
+	// Kinds of command passed from the parse stage to the allocate stage
+	private static final int SEAT = 0;
+	private static final int REQUEST = 1;
+	private static final int END = 2;
+
+	/**
+	 * A pre-reservation, group request or the end of the input
+	 */
+	private static final class Command {
+		int kind;
+		int row;
+		int column;
+		int total;
+	}
+
+	/**
+	 * The seats given to a group, or the end of the results
+	 */
+	private static final class Result {
+		final SeatRange range = new SeatRange();
+		boolean end;
+	}
+
+	private final Seating seating;
+	private final Output output;
+
+	private final RingBuffer<Command> commands;
+	private final RingBuffer<Result> results;
+
+	// True if the first line of the input is the pre-reservations
+	private final boolean reservations;
+
+	// Set by the parse stage if the input could not be read
+	private volatile IOException parseFailure;
+
+	private int linesRead = 0;
+	private int requests = 0;
+	private int failures = 0;
+
+	/**
+	 * Creates a pipeline that places groups on the seating chart specified
+	 * 
+	 * @param seating
+	 *            - Seating chart to make the reservations on
+	 * @param output
+	 *            - Output the results are printed to
+	 * @param capacity
+	 *            - Number of commands and results that can be waiting between
+	 *            two stages, has to be a power of 2
+	 * @param reservations
+	 *            - True if the first line of the input is the pre-reservations
+	 */
+	public SeatingPipeline(Seating seating, Output output, int capacity, boolean reservations) {
+		Command[] commandSlots = new Command[capacity];
+		Result[] resultSlots = new Result[capacity];
+		for (int i = 0; i < capacity; i++) {
+			commandSlots[i] = new Command();
+			resultSlots[i] = new Result();
+		}
+		this.seating = seating;
+		this.output = output;
+		this.commands = new RingBuffer<Command>(commandSlots);
+		this.results = new RingBuffer<Result>(resultSlots);
+		this.reservations = reservations;
+	}
+
+	/**
+	 * Replays the input, returning once every result has been printed
+	 * 
+	 * @param parser
+	 *            - Parser reading the input
+	 * @throws IOException
+	 *             If the input could not be read, or the pipeline was
+	 *             interrupted
+	 */
+	public void run(final InputParser parser) throws IOException {
+		final Thread allocator = Thread.currentThread();
+		Thread parse = new Thread("Seating pipeline parse") {
+			@Override
+			public void run() {
+				try {
+					parse(parser);
+				} catch (InterruptedException e) {
+					return;
+				} catch (RuntimeException | Error e) {
+					allocator.interrupt();
+					throw e;
+				}
+			}
+		};
+		Thread emit = new Thread("Seating pipeline emit") {
+			@Override
+			public void run() {
+				try {
+					emit();
+				} catch (InterruptedException e) {
+					return;
+				} catch (RuntimeException | Error e) {
+					allocator.interrupt();
+					throw e;
+				}
+			}
+		};
+		parse.setDaemon(true);
+		emit.setDaemon(true);
+		parse.start();
+		emit.start();
+
+		boolean finished = false;
+		try {
+			allocate();
+			finished = true;
+			emit.join();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("The seating pipeline was interrupted");
+		} finally {
+			if (!finished) {
+				parse.interrupt();
+				emit.interrupt();
+			}
+		}
+		if (parseFailure != null) {
+			throw parseFailure;
+		}
+	}
+
+	/**
+	 * The parse stage: turns every seat of the pre-reservations and every
+	 * group size into a command
+	 */
+	private void parse(InputParser parser) throws InterruptedException {
+		try {
+			while (parser.nextLine()) {
+				if (linesRead == 0 && reservations) {
+					while (parser.nextSeat()) {
+						Command command = commands.claim();
+						command.kind = SEAT;
+						command.row = parser.getRow();
+						command.column = parser.getColumn();
+						commands.publish();
+					}
+				} else {
+					// Lines without a number are skipped
+					int seatingRequest = parser.nextNumber();
+					if (seatingRequest >= 0) {
+						Command command = commands.claim();
+						command.kind = REQUEST;
+						command.total = seatingRequest;
+						commands.publish();
+					}
+				}
+				linesRead++;
+			}
+		} catch (IOException e) {
+			parseFailure = e;
+		}
+		commands.claim().kind = END;
+		commands.publish();
+	}
+
+	/**
+	 * The allocate stage: makes every reservation on the seating chart in the
+	 * order the commands were read
+	 */
+	private void allocate() throws InterruptedException {
+		// Once a pre-reservation fails the rest of the line is skipped, the
+		// same as SeatingDriver
+		boolean skipSeats = false;
+		while (true) {
+			Command command = commands.take();
+			int kind = command.kind;
+			if (kind == SEAT && !skipSeats) {
+				try {
+					seating.preReserveSeat(command.row, command.column);
+				} catch (InvalidSeatException e) {
+					skipSeats = true;
+					failures++;
+					SeatingDriver.report(output, e);
+				}
+			} else if (kind == REQUEST) {
+				requests++;
+				Result result = results.claim();
+				try {
+					seating.requestSeats(command.total, result.range);
+					result.end = false;
+					results.publish();
+				} catch (MaximumRequestsExceededException e) {
+					failures++;
+					SeatingDriver.report(output, e);
+				}
+			}
+			commands.release();
+			if (kind == END) {
+				break;
+			}
+		}
+		results.claim().end = true;
+		results.publish();
+	}
+
+	/**
+	 * The emit stage: prints the result of every group request
+	 */
+	private void emit() throws InterruptedException {
+		while (true) {
+			Result result = results.take();
+			if (result.end) {
+				results.release();
+				return;
+			}
+			output.println(result.range);
+			results.release();
+		}
+	}
+
+	/**
+	 * Get the number of lines read from the input
+	 * 
+	 * @return Number of lines
+	 */
+	public int getLinesRead() {
+		return linesRead;
+	}
+
+	/**
+	 * Get the number of group requests made
+	 * 
+	 * @return Number of group requests
+	 */
+	public int getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Get the number of pre-reservations and group requests that failed
+	 * 
+	 * @return Number of failures
+	 */
+	public int getFailures() {
+		return failures;
+	}
+}
@@ -0,0 +1,280 @@
+package com.showclix.driver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.showclix.seating.SeatRange;
+import com.showclix.seating.Seating;
+import com.showclix.seating.SeatingStats;
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.InputParser;
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * SeatingReplay
+ * 
+ * Replays an input file, such as one written by SeatingWorkload, against a
+ * fresh seating chart and measures how it held up: requests per second over
+ * the whole run and over it's slowest tenth, the latency percentiles of the
+ * group requests, and how full the chart was at the end. The chart is
+ * configured from the properties file next to the input if there is one, the
+ * same as in batch mode.
+ * 
+ * The whole input is read into memory before the clock starts, so only the
+ * seating chart is measured and not reading the file or printing results.
+ * Replaying is deterministic, so the checksum of the seats every group was
+ * given can be compared between versions to make sure a faster version still
+ * places every group in the same seats.
+ * 
+ * Usage: SeatingReplay FILE [RUNS]
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingReplay {
+
+	// Number of slices a run is timed in, the slowest one is the sustained
+	// rate
+	private static final int WINDOWS = 10;
+
+	// Settings the chart is configured from
+	private final Settings settings;
+	private final int rowCount;
+	private final int seatCount;
+
+	// The pre-reserved seats, starting at 1 as they are in the input
+	private int[] reservedRows = new int[16];
+	private int[] reservedColumns = new int[16];
+	private int reservedCount = 0;
+
+	// Group sizes in the order they are requested
+	private int[] groups = new int[1024];
+	private int groupCount = 0;
+
+	// Results of the last run
+	private long elapsed;
+	private long slowestWindow;
+	private int placed;
+	private int notAvailable;
+	private int rejected;
+	private int availableSeats;
+	private long checksum;
+	private SeatingStats stats;
+
+	/**
+	 * Reads the input file specified, configuring the chart from the
+	 * configuration file and the properties file next to the input
+	 * 
+	 * @param input
+	 *            - Input file to replay
+	 * @throws IOException
+	 */
+	public SeatingReplay(Path input) throws IOException {
+		this(input, Settings.getInstance());
+	}
+
+	/**
+	 * Reads the input file specified, configuring the chart from the settings
+	 * specified and the properties file next to the input
+	 * 
+	 * @param input
+	 *            - Input file to replay
+	 * @param settings
+	 *            - Settings the properties file overrides
+	 * @throws IOException
+	 */
+	public SeatingReplay(Path input, Settings settings) throws IOException {
+		this.settings = SeatingBatch.settingsFor(input, settings);
+		this.rowCount = this.settings.getInt("seating.chart.rowCount", 3);
+		this.seatCount = this.settings.getInt("seating.chart.seatCount", 11);
+
+		try (InputParser parser = InputParser.open(input.toString())) {
+			if (parser.nextLine()) {
+				while (parser.nextSeat()) {
+					if (reservedCount == reservedRows.length) {
+						reservedRows = Arrays.copyOf(reservedRows, reservedCount * 2);
+						reservedColumns = Arrays.copyOf(reservedColumns, reservedCount * 2);
+					}
+					reservedRows[reservedCount] = parser.getRow();
+					reservedColumns[reservedCount++] = parser.getColumn();
+				}
+			}
+
+			// Lines without a number are skipped, the same as the driver
+			while (parser.nextLine()) {
+				int total = parser.nextNumber();
+				if (total >= 0) {
+					if (groupCount == groups.length) {
+						groups = Arrays.copyOf(groups, groupCount * 2);
+					}
+					groups[groupCount++] = total;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replays the input once on a new seating chart
+	 * 
+	 * @throws InvalidSeatException
+	 *             If a pre-reserved seat is not on the chart
+	 */
+	public void run() throws InvalidSeatException {
+		Seating seating = new Seating(rowCount, seatCount, settings);
+		for (int i = 0; i < reservedCount; i++) {
+			seating.preReserveSeat(reservedRows[i], reservedColumns[i]);
+		}
+		stats = new SeatingStats(settings.getInt("seating.requests.max", 10));
+		seating.setStatistics(stats);
+
+		SeatRange result = new SeatRange();
+		placed = 0;
+		notAvailable = 0;
+		rejected = 0;
+		checksum = 0;
+		slowestWindow = 0;
+		long started = System.nanoTime();
+		long windowStarted = started;
+		for (int window = 0; window < WINDOWS; window++) {
+			int end = (int) ((long) groupCount * (window + 1) / WINDOWS);
+			for (int i = (int) ((long) groupCount * window / WINDOWS); i < end; i++) {
+				int hash;
+				try {
+					if (seating.requestSeats(groups[i], result)) {
+						placed++;
+					} else {
+						notAvailable++;
+					}
+					hash = result.hashCode();
+				} catch (MaximumRequestsExceededException e) {
+					rejected++;
+					hash = -1;
+				}
+				checksum = checksum * 31 + hash;
+			}
+			long now = System.nanoTime();
+			slowestWindow = Math.max(slowestWindow, now - windowStarted);
+			windowStarted = now;
+		}
+		elapsed = System.nanoTime() - started;
+		availableSeats = seating.getAvailableSeats();
+	}
+
+	/**
+	 * Prints a one line summary of the last run
+	 * 
+	 * @param output
+	 *            - Output to print to
+	 * @param name
+	 *            - Name of the run, printed first
+	 */
+	public void printSummary(Output output, String name) {
+		output.println(name + String.format("%10.0f requests/sec, %10.0f sustained, p99 %.1f us, %.1f%% full", getRequestsPerSecond(),
+				getSustainedRequestsPerSecond(), stats.getLatencyP99Nanos() / 1000.0, getFillRate() * 100));
+	}
+
+	/**
+	 * Prints everything measured in the last run
+	 * 
+	 * @param output
+	 *            - Output to print to
+	 */
+	public void print(Output output) {
+		output.println("Chart:              " + rowCount + " x " + seatCount + " (" + reservedCount + " pre-reserved)");
+		output.println("Elapsed:            " + String.format("%.3f", elapsed / 1e9) + " s");
+		output.println("Requests/sec:       " + String.format("%.0f", getRequestsPerSecond()));
+		output.println("Sustained/sec:      " + String.format("%.0f", getSustainedRequestsPerSecond()) + " (slowest tenth of the run)");
+		output.println("Rejected:           " + rejected + " (larger than seating.requests.max)");
+		output.println("Fill rate:          " + String.format("%.2f%%", getFillRate() * 100) + " (" + availableSeats + " seats left)");
+		output.println("Checksum:           " + Long.toHexString(checksum));
+		stats.print(output);
+	}
+
+	public int getGroupCount() {
+		return groupCount;
+	}
+
+	public int getPlaced() {
+		return placed;
+	}
+
+	public int getNotAvailable() {
+		return notAvailable;
+	}
+
+	public int getRejected() {
+		return rejected;
+	}
+
+	public int getAvailableSeats() {
+		return availableSeats;
+	}
+
+	/**
+	 * Get a hash of the seats every group of the last run was given, which is
+	 * the same for every run and every version that places groups the same
+	 * way
+	 * 
+	 * @return The checksum
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Get the fraction of the chart's seats that were taken at the end of the
+	 * last run, including the pre-reserved seats
+	 * 
+	 * @return Fraction between 0 and 1
+	 */
+	public double getFillRate() {
+		long totalSeats = (long) rowCount * seatCount;
+		return (double) (totalSeats - availableSeats) / totalSeats;
+	}
+
+	/**
+	 * Get the group requests answered per second over the whole last run
+	 * 
+	 * @return Requests per second
+	 */
+	public double getRequestsPerSecond() {
+		return groupCount / Math.max(1e-9, elapsed / 1e9);
+	}
+
+	/**
+	 * Get the group requests answered per second over the slowest tenth of
+	 * the last run, which is the rate the chart could keep up the whole time
+	 * 
+	 * @return Requests per second
+	 */
+	public double getSustainedRequestsPerSecond() {
+		return (double) groupCount / WINDOWS / Math.max(1e-9, slowestWindow / 1e9);
+	}
+
+	/**
+	 * Entry point into the replay tool. Every run is on a new chart, the
+	 * first ones warm up the JVM and the last one is printed in full
+	 * 
+	 * @param args
+	 *            - Path of the input file, and optionally the number of runs
+	 * @throws IOException
+	 * @throws InvalidSeatException
+	 */
+	public static void main(String[] args) throws IOException, InvalidSeatException {
+		if (args.length == 0) {
+			Output.getInstance().println("Usage: SeatingReplay FILE [RUNS]");
+			return;
+		}
+		int runs = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : 5;
+		SeatingReplay replay = new SeatingReplay(Paths.get(args[0]));
+		for (int i = 1; i <= runs; i++) {
+			replay.run();
+			replay.printSummary(Output.getInstance(), "Run " + i + ": ");
+		}
+		replay.print(Output.getInstance());
+	}
+}
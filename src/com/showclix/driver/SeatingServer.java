@@ -0,0 +1,317 @@
+package com.showclix.driver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.management.JMException;
+
+import com.showclix.seating.Seating;
+import com.showclix.seating.SearchMode;
+import com.showclix.seating.SeatingJournal;
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * SeatingServer
+ * 
+ * A long running, line based TCP front end for a single seating chart held in
+ * memory. The server only listens on the loopback address. Every line sent by
+ * a client gets exactly one line back:
+ * 
+ * <pre>
+ * R1C4 R1C6 R2C3   -> OK                 (pre-reserves the seats listed)
+ * 3                -> R1C5 - R1C7        (requests seats for a group of 3)
+ * AVAILABLE        -> 27                 (number of seats still available)
+ * QUIT             -> BYE                (closes the connection)
+ * </pre>
+ * 
+ * Errors are returned as a line starting with "ERROR". Each connection is
+ * handled on it's own virtual thread when the JVM supports them, otherwise on
+ * a pooled platform thread. The seating chart is created in concurrent mode so
+ * connections can place groups at the same time.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingServer {
+
+	// The seating chart shared by every connection
+	private final Seating seating;
+
+	// Port to listen on
+	private final int port;
+
+	// Number of connections that can be waiting to be accepted
+	private final int backlog;
+
+	private ServerSocket serverSocket;
+	private ExecutorService connections;
+	private volatile boolean running = false;
+
+	/**
+	 * Creates a server for the seating chart specified. The chart should be
+	 * concurrent since connections are handled at the same time
+	 * 
+	 * @param seating
+	 *            - The seating chart to place groups on
+	 * @param port
+	 *            - Port to listen on, 0 to pick any free port
+	 */
+	public SeatingServer(Seating seating, int port) {
+		this.seating = seating;
+		this.port = port;
+		this.backlog = Settings.getInstance().getInt("seating.server.backlog", 4096);
+	}
+
+	/**
+	 * Binds the server socket. Connections will not be accepted until serve is
+	 * called
+	 * 
+	 * @return The port the server is listening on
+	 * @throws IOException
+	 */
+	public int start() throws IOException {
+		serverSocket = new ServerSocket(port, backlog, InetAddress.getLoopbackAddress());
+		connections = newConnectionExecutor();
+		running = true;
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections until the server is stopped, handing each one to it's
+	 * own thread
+	 */
+	public void serve() {
+		while (running) {
+			try {
+				final Socket socket = serverSocket.accept();
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						handle(socket);
+					}
+				});
+			} catch (IOException e) {
+				if (running) {
+					Output.getInstance().debug("Failed to accept a connection: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections and closes the server socket. Connections
+	 * that are already open are allowed to finish
+	 */
+	public void stop() {
+		running = false;
+		try {
+			if (serverSocket != null) {
+				serverSocket.close();
+			}
+		} catch (IOException e) {
+			/*
+			 * Nothing left to do if the socket won't close
+			 */
+		}
+		if (connections != null) {
+			connections.shutdown();
+		}
+	}
+
+	/**
+	 * Reads lines from the connection and answers each one. Answers are only
+	 * flushed once the client has nothing else waiting to be read, so clients
+	 * that pipeline requests get their answers in larger writes
+	 * 
+	 * @param socket
+	 *            - Connection to a client
+	 */
+	private void handle(Socket socket) {
+		try (Socket client = socket;
+				BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+				BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				if (line.equalsIgnoreCase("QUIT")) {
+					writer.write("BYE\n");
+					break;
+				}
+				writer.write(answer(line));
+				writer.write('\n');
+				if (!reader.ready()) {
+					writer.flush();
+				}
+			}
+			writer.flush();
+		} catch (IOException e) {
+			Output.getInstance().debug("Connection closed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Works out the answer to a single line of input
+	 * 
+	 * @param line
+	 *            - A line sent by a client, already trimmed
+	 * @return The line to send back
+	 */
+	String answer(String line) {
+		try {
+			if (line.equalsIgnoreCase("AVAILABLE")) {
+				return String.valueOf(seating.getAvailableSeats());
+			} else if (Character.isDigit(line.charAt(0))) {
+				return seating.requestSeats(Integer.parseInt(line));
+			} else if (line.charAt(0) == 'R' || line.charAt(0) == 'r') {
+				for (String reservation : line.split(" +")) {
+					seating.preReserveSeat(reservation.toUpperCase());
+				}
+				return "OK";
+			}
+			return "ERROR Unknown request: " + line;
+		} catch (MaximumRequestsExceededException | InvalidSeatException e) {
+			return "ERROR " + e.getMessage();
+		} catch (RuntimeException e) {
+			return "ERROR Could not read request: " + line;
+		}
+	}
+
+	/**
+	 * Creates the executor that connections are handled on. Virtual threads
+	 * are used if the JVM has them, which lets one box hold tens of thousands
+	 * of open connections. Older JVMs fall back to a cached thread pool
+	 * 
+	 * @return A new executor for connections
+	 */
+	static ExecutorService newConnectionExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Reloads the configuration file whenever it changes, and grows the
+	 * seating chart when a larger chart size is configured so the server does
+	 * not have to be restarted (losing the reservations that are not
+	 * journaled) for a bigger venue. Smaller sizes are ignored. The resize is
+	 * journaled, so a journaled chart keeps it's new size across restarts
+	 * 
+	 * @param seating
+	 *            - The seating chart to grow
+	 * @param settings
+	 *            - Settings to watch
+	 * @throws IOException
+	 *             If the configuration file could not be watched
+	 */
+	private static void resizeOnChange(final Seating seating, Settings settings) throws IOException {
+		settings.addListener(new Settings.Listener() {
+			@Override
+			public void settingsChanged(Settings previous, Settings current) {
+				int rowCount = Math.max(seating.getRowCount(), current.getInt("seating.chart.rowCount", 3));
+				int seatCount = Math.max(seating.getSeatCount(), current.getInt("seating.chart.seatCount", 11));
+				if (rowCount != seating.getRowCount() || seatCount != seating.getSeatCount()) {
+					seating.resize(rowCount, seatCount);
+					Output.getInstance().println("Resized the seating chart to " + rowCount + "x" + seatCount);
+				}
+			}
+		});
+		settings.watch();
+	}
+
+	/**
+	 * Takes a checkpoint of the journaled seating chart on a daemon thread
+	 * every interval, so the journal is started over and recovering the chart
+	 * only replays the changes made since the last checkpoint
+	 * 
+	 * @param journal
+	 *            - Journal of the seating chart, paired with a snapshot file
+	 * @param seating
+	 *            - The seating chart the journal is attached to
+	 * @param intervalSeconds
+	 *            - Seconds between checkpoints, 0 to never take one
+	 */
+	private static void checkpointEvery(final SeatingJournal journal, final Seating seating, int intervalSeconds) {
+		if (intervalSeconds <= 0) {
+			return;
+		}
+		long interval = intervalSeconds * 1000L;
+		new Timer("Journal checkpoint", true).schedule(new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					journal.checkpoint(seating);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}, interval, interval);
+	}
+
+	/**
+	 * Starts a server for a new concurrent seating chart using the configured
+	 * chart size and port. If a journal file is configured the chart is
+	 * recovered from it, and every reservation is written to it before it is
+	 * answered. If a snapshot file is configured as well, a checkpoint is
+	 * taken every "seating.journal.checkpointInterval" seconds. The chart
+	 * grows when a larger size is configured while the server is running.
+	 * 
+	 * The chart searches in the configured search mode, which must be one a
+	 * concurrent chart supports, so the SCAN and LAZY modes are refused
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		Settings settings = Settings.getInstance();
+		int rowCount = settings.getInt("seating.chart.rowCount", 3);
+		int seatCount = settings.getInt("seating.chart.seatCount", 11);
+		SearchMode searchMode = SearchMode.parse(settings.getString("seating.search.mode", "index"), SearchMode.INDEX);
+		if (searchMode == SearchMode.SCAN || searchMode == SearchMode.LAZY) {
+			Output.getInstance().println("The server shares it's seating chart between threads, which the " + searchMode
+					+ " search mode does not support. Set seating.search.mode to index or optimal");
+			return;
+		}
+		String journalPath = settings.getString("seating.journal.file", "");
+		try {
+			Seating seating;
+			if (journalPath.isEmpty()) {
+				seating = new Seating(rowCount, seatCount, searchMode, true);
+			} else {
+				String snapshotPath = settings.getString("seating.journal.snapshot", "");
+				SeatingJournal journal = new SeatingJournal(journalPath, snapshotPath.isEmpty() ? null : snapshotPath);
+				seating = journal.recover(rowCount, seatCount, searchMode, true);
+				if (!snapshotPath.isEmpty()) {
+					checkpointEvery(journal, seating, settings.getInt("seating.journal.checkpointInterval", 60));
+				}
+			}
+			if (seating.getStatistics() != null) {
+				seating.getStatistics().register("server");
+			}
+			resizeOnChange(seating, settings);
+			SeatingServer server = new SeatingServer(seating, settings.getInt("seating.server.port", 7311));
+			int port = server.start();
+			Output.getInstance().println("Listening on localhost:" + port);
+			server.serve();
+		} catch (IOException | JMException e) {
+			e.printStackTrace();
+		}
+	}
+}
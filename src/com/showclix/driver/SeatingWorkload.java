@@ -0,0 +1,229 @@
+package com.showclix.driver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Properties;
+import java.util.Random;
+
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * SeatingWorkload
+ * 
+ * Generates synthetic input files in the SeatingDriver format, so that large
+ * and realistic loads can be replayed against a seating chart (see
+ * SeatingReplay). The chart size, how many seats are pre-reserved and how
+ * tightly they are clustered together, the mix of group sizes and the number
+ * of group requests are all read from the seating.workload settings.
+ * 
+ * Everything is drawn from a Random created from the seed, so the same seed
+ * and settings always write exactly the same file and results can be
+ * compared between versions. The chart size and group size limit are written
+ * to a properties file next to the input (scenario1.properties for
+ * scenario1.txt), which the driver's batch mode and SeatingReplay both use.
+ * 
+ * The group sizes are either "uniform", every size from 1 to
+ * seating.requests.max equally often, or a comma separated list of
+ * size:weight pairs such as "1:20,2:50,4:30". Listed sizes may be larger than
+ * seating.requests.max, those requests are turned away by the seating chart
+ * which measures that path as well.
+ * 
+ * Usage: SeatingWorkload FILE [REQUESTS] [SEED]
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingWorkload {
+
+	// Size of the seating chart the workload is for
+	private final int rowCount;
+	private final int seatCount;
+
+	// Number of group requests to write
+	private final int requests;
+
+	// Seed every random choice is drawn from
+	private final long seed;
+
+	// Percentage of the seats that are pre-reserved
+	private final int prefilled;
+
+	// Percentage chance that a pre-reserved seat is the seat right after the
+	// previous one instead of a random seat, so higher values give longer
+	// blocks of pre-reserved seats
+	private final int clustering;
+
+	// Largest group the chart accepts
+	private final int maxRequests;
+
+	// Group sizes, and the running total of their weights used to pick them
+	private final int[] groupSizes;
+	private final int[] cumulativeWeights;
+
+	/**
+	 * Creates a workload configured from the settings specified
+	 * 
+	 * @param settings
+	 *            - Settings to read the seating.workload configuration from
+	 * @throws IllegalArgumentException
+	 *             If a setting is out of range or the group sizes can not be
+	 *             read
+	 */
+	public SeatingWorkload(Settings settings) {
+		this.rowCount = settings.getInt("seating.workload.rowCount", 1000);
+		this.seatCount = settings.getInt("seating.workload.seatCount", 1000);
+		this.requests = settings.getInt("seating.workload.requests", 1000000);
+		this.seed = settings.getInt("seating.workload.seed", 1);
+		this.prefilled = settings.getInt("seating.workload.prefilled", 20);
+		this.clustering = settings.getInt("seating.workload.clustering", 50);
+		this.maxRequests = settings.getInt("seating.requests.max", 10);
+
+		if (rowCount <= 0 || seatCount <= 0 || (long) rowCount * seatCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The workload chart must have between 1 and " + Integer.MAX_VALUE + " seats, not " + rowCount + " x " + seatCount);
+		} else if (prefilled > 100 || clustering > 100) {
+			throw new IllegalArgumentException("The prefilled and clustering percentages must be at most 100");
+		}
+
+		// Parse the group sizes into parallel arrays of sizes and cumulative
+		// weights
+		String groups = settings.getString("seating.workload.groups", "uniform").trim();
+		String[] pairs;
+		if (groups.equalsIgnoreCase("uniform")) {
+			pairs = new String[maxRequests];
+			for (int i = 0; i < maxRequests; i++) {
+				pairs[i] = (i + 1) + ":1";
+			}
+		} else {
+			pairs = groups.split(",");
+		}
+		if (pairs.length == 0) {
+			throw new IllegalArgumentException("The workload needs at least one group size");
+		}
+		this.groupSizes = new int[pairs.length];
+		this.cumulativeWeights = new int[pairs.length];
+		int totalWeight = 0;
+		for (int i = 0; i < pairs.length; i++) {
+			String[] pair = pairs[i].split(":");
+			int weight;
+			try {
+				groupSizes[i] = Integer.parseInt(pair[0].trim());
+				weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("The group size " + pairs[i] + " is not of the form size:weight");
+			}
+			if (groupSizes[i] <= 0 || weight <= 0) {
+				throw new IllegalArgumentException("Group sizes and weights must be at least 1: " + pairs[i]);
+			}
+			totalWeight += weight;
+			cumulativeWeights[i] = totalWeight;
+		}
+	}
+
+	/**
+	 * Writes the workload to the input file specified and the chart's
+	 * configuration to the properties file next to it
+	 * 
+	 * @param input
+	 *            - Path of the input file to write
+	 * @throws IOException
+	 */
+	public void write(Path input) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(input, StandardCharsets.US_ASCII)) {
+			write(writer);
+		}
+		try (Writer writer = Files.newBufferedWriter(SeatingBatch.propertiesFor(input), StandardCharsets.US_ASCII)) {
+			writer.write("# Generated by SeatingWorkload from seed " + seed + "\n");
+			writer.write("seating.chart.rowCount = " + rowCount + "\n");
+			writer.write("seating.chart.seatCount = " + seatCount + "\n");
+			writer.write("seating.requests.max = " + maxRequests + "\n");
+		}
+	}
+
+	/**
+	 * Writes the workload in the SeatingDriver format: the pre-reserved seats
+	 * on the first line followed by one group size per line
+	 * 
+	 * @param writer
+	 *            - Writer to write the workload to
+	 * @throws IOException
+	 */
+	public void write(Writer writer) throws IOException {
+		if (!(writer instanceof BufferedWriter)) {
+			writer = new BufferedWriter(writer);
+		}
+		Random rand = new Random(seed);
+
+		// Pre-reserve seats until enough of the chart is taken. A seat that
+		// is already taken moves on to the next free seat, so the loop ends
+		// after exactly the number of seats asked for
+		int totalSeats = rowCount * seatCount;
+		int target = (int) ((long) totalSeats * prefilled / 100);
+		BitSet taken = new BitSet(totalSeats);
+		int seat = -1;
+		for (int i = 0; i < target; i++) {
+			if (seat < 0 || (seat + 1) % seatCount == 0 || rand.nextInt(100) >= clustering) {
+				seat = rand.nextInt(totalSeats);
+			} else {
+				seat++;
+			}
+			seat = taken.nextClearBit(seat);
+			if (seat >= totalSeats) {
+				seat = taken.nextClearBit(0);
+			}
+			taken.set(seat);
+
+			if (i > 0) {
+				writer.write(' ');
+			}
+			writer.write('R');
+			writer.write(Integer.toString(seat / seatCount + 1));
+			writer.write('C');
+			writer.write(Integer.toString(seat % seatCount + 1));
+		}
+		writer.write('\n');
+
+		// Every group size is written the same way, so build it's line once
+		String[] lines = new String[groupSizes.length];
+		for (int i = 0; i < groupSizes.length; i++) {
+			lines[i] = groupSizes[i] + "\n";
+		}
+		int totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+		for (int i = 0; i < requests; i++) {
+			int index = Arrays.binarySearch(cumulativeWeights, rand.nextInt(totalWeight) + 1);
+			writer.write(lines[index >= 0 ? index : -index - 1]);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Entry point into the workload generator. Settings not given on the
+	 * command line come from the configuration file
+	 * 
+	 * @param args
+	 *            - Path of the input file to write, and optionally the number
+	 *            of requests and the seed
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			Output.getInstance().println("Usage: SeatingWorkload FILE [REQUESTS] [SEED]");
+			return;
+		}
+		Properties overrides = new Properties();
+		if (args.length > 1) {
+			overrides.setProperty("seating.workload.requests", args[1]);
+		}
+		if (args.length > 2) {
+			overrides.setProperty("seating.workload.seed", args[2]);
+		}
+		new SeatingWorkload(Settings.getInstance().override(overrides)).write(Paths.get(args[0]));
+	}
+}
@@ -0,0 +1,571 @@
+package com.showclix.seating;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The FreeRunIndex keeps a RowIndex for every row in the seating chart. On top
+ * of the rows it keeps, for every group size that has been requested, a min
+ * tree of the score of the best block in each row. A row's entry is only
+ * recalculated when the tree points at it and the row has changed since it
+ * was last calculated. Reserving seats can only make a row's best block worse,
+ * so an out of date entry is still a lower bound and can be left alone until
+ * it is needed.
+ * 
+ * The block returned by the index is always the same block that would be found
+ * by walking the priority list from best to worst seat and growing a block
+ * around each seat, the way Seating did originally. In SearchMode.OPTIMAL a
+ * block is scored by the total score of all of it's seats instead of the
+ * score of the seat it would have been grown from.
+ * 
+ * A lazy index only creates a row's RowIndex once one of it's seats is taken,
+ * and it's trees only cover the rows in use plus the first untouched row
+ * behind them. An untouched row is completely free, so it's best block is
+ * centered and has the best score in the row. As long as scores never get
+ * better further back, no untouched row behind that one can beat it.
+ * 
+ * When row locks are provided the index can be shared between threads. Each
+ * SizeTree is searched while holding it's own monitor, and a row is only read
+ * while holding that row's lock. The caller must hold the row's lock when
+ * occupying or vacating seats.
+ * 
+ * @version 1.0
+ * 
+ */
+final class FreeRunIndex {
+
+	// Tree value of a row that has no block large enough for the group size
+	private static final int NONE = Integer.MAX_VALUE;
+
+	// Total number of rows and seats per row in the seating chart
+	private final int rowCount;
+	private final int seatCount;
+
+	// Free run index for each individual row. Rows of a lazy index are null
+	// until one of their seats is taken
+	private final RowIndex[] rows;
+
+	// True if rows are only created once they are used
+	private final boolean lazy;
+
+	// Stands in for the rows of a lazy index that have not been created yet,
+	// which are completely free. Never has a seat taken
+	private final RowIndex emptyRow;
+
+	// True if blocks are scored by the total score of their seats
+	private final boolean optimal;
+
+	// Every row from this one back has never had a seat taken. Only kept up
+	// to date by a lazy index, which can not be shared between threads
+	private int rowsInUse;
+
+	// Counts the changes made to each row, used to tell whether a row's entry
+	// in a SizeTree is up to date
+	private final AtomicIntegerArray changes;
+
+	// One lock per row if the index is shared between threads, null otherwise
+	private final ReentrantLock[] rowLocks;
+
+	// Scores the seats
+	private final SeatScorer scorer;
+
+	// One SizeTree per group size, indexed by group size. Trees are only
+	// created for group sizes that have been requested
+	private final SizeTree[] trees;
+
+	// Where the rows looked at and recalculated are counted, null if they
+	// are not being counted
+	private volatile SeatingStats stats;
+
+	/**
+	 * Constructs the index for a seating chart where every seat is free
+	 * 
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @param rowLocks
+	 *            - One lock per row if the index will be shared between
+	 *            threads, null otherwise
+	 * @param scorer
+	 *            - Scores the seats, lower is better
+	 * @param searchMode
+	 *            - SearchMode.LAZY to only create rows once they are used,
+	 *            SearchMode.OPTIMAL to score blocks by all of their seats
+	 */
+	FreeRunIndex(int rowCount, int seatCount, ReentrantLock[] rowLocks, SeatScorer scorer, SearchMode searchMode) {
+		this.rowCount = rowCount;
+		this.seatCount = seatCount;
+		this.rowLocks = rowLocks;
+		this.scorer = scorer;
+		this.lazy = searchMode == SearchMode.LAZY;
+		this.optimal = searchMode == SearchMode.OPTIMAL;
+		this.rows = new RowIndex[rowCount];
+		this.changes = new AtomicIntegerArray(rowCount);
+		this.trees = new SizeTree[seatCount + 1];
+		this.emptyRow = lazy ? new RowIndex(seatCount) : null;
+
+		if (!lazy) {
+			for (int row = 0; row < rowCount; row++) {
+				rows[row] = new RowIndex(seatCount);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of rows that have a RowIndex
+	 * 
+	 * @return Number of rows in use
+	 */
+	int getRowsInUse() {
+		return lazy ? rowsInUse : rowCount;
+	}
+
+	/**
+	 * Sets the statistics the rows looked at by find, and the rows it had to
+	 * recalculate, are counted in
+	 * 
+	 * @param stats
+	 *            - Statistics to count in, or null to stop counting
+	 */
+	void setStatistics(SeatingStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Checks whether the seat at the row and column specified is free
+	 * 
+	 * @param row
+	 *            - Row of the seat
+	 * @param column
+	 *            - Column of the seat
+	 * @return True if the seat is free, false otherwise
+	 */
+	boolean isFree(int row, int column) {
+		RowIndex index = rows[row];
+		return index == null || index.isFree(column);
+	}
+
+	/**
+	 * Checks whether every seat in the row between the columns specified
+	 * (inclusive) is free
+	 * 
+	 * @param row
+	 *            - Row of the seats
+	 * @param from
+	 *            - First column to check
+	 * @param to
+	 *            - Last column to check
+	 * @return True if all of the seats are free, false otherwise
+	 */
+	boolean isFree(int row, int from, int to) {
+		RowIndex index = rows[row];
+		for (int column = from; index != null && column <= to; column++) {
+			if (!index.isFree(column)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Marks the seats in the row between the columns specified (inclusive) as
+	 * taken
+	 * 
+	 * @param row
+	 *            - Row of the seats
+	 * @param from
+	 *            - First column to mark
+	 * @param to
+	 *            - Last column to mark
+	 */
+	void occupy(int row, int from, int to) {
+		row(row).occupy(from, to);
+		changes.incrementAndGet(row);
+	}
+
+	/**
+	 * Marks every seat in the row whose bit is set in the words specified as
+	 * taken
+	 * 
+	 * @param row
+	 *            - Row of the seats
+	 * @param taken
+	 *            - One bit per seat, 64 seats per word, set if the seat is
+	 *            taken
+	 */
+	void occupy(int row, long[] taken) {
+		row(row).occupy(taken);
+		changes.incrementAndGet(row);
+	}
+
+	/**
+	 * Marks the seats in the row between the columns specified (inclusive) as
+	 * free
+	 * 
+	 * @param row
+	 *            - Row of the seats
+	 * @param from
+	 *            - First column to mark
+	 * @param to
+	 *            - Last column to mark
+	 */
+	void vacate(int row, int from, int to) {
+		if (rows[row] == null) {
+			return;
+		}
+		rows[row].vacate(from, to);
+		changes.incrementAndGet(row);
+
+		// Freeing seats can make the row's best block better, so the old
+		// entries are no longer lower bounds. Each tree will reset the row the
+		// next time it is searched, this avoids taking a tree's monitor while
+		// the caller holds the row's lock
+		for (SizeTree tree : trees) {
+			if (tree != null) {
+				tree.vacated.add(row);
+			}
+		}
+	}
+
+	/**
+	 * Finds the best block of free seats for a group of the size specified.
+	 * The best block is the one whose "seed" seat (the seat the block would
+	 * have been grown from) has the lowest score, or in SearchMode.OPTIMAL the
+	 * one whose seats have the lowest total score. Ties are broken by row and
+	 * then by column, matching the order of the priority list.
+	 * 
+	 * @param total
+	 *            - Size of the group looking to be seated
+	 * @return The seat index (row * seatCount + column) of the first seat in
+	 *         the block, or -1 if the group cannot be placed
+	 */
+	int find(int total) {
+		if (total <= 0 || total > seatCount) {
+			return -1;
+		}
+
+		// The seed seat sits at offset total / 2 from the start of the block
+		// so the ideal block starts that far to the left of the center seat.
+		// This is also the block with the lowest total score
+		int target = seatCount / 2 - total / 2;
+
+		SizeTree tree = tree(total);
+		synchronized (tree) {
+			// A lazy index searches the rows in use and the first untouched
+			// row, which is the best of the untouched rows
+			if (lazy) {
+				tree.cover(Math.min(rowCount, rowsInUse + 1));
+			}
+
+			// The score of the ideal block is always a lower bound for a row
+			// that has had seats freed
+			for (Integer row = tree.vacated.poll(); row != null; row = tree.vacated.poll()) {
+				tree.set(row, blockScore(row, target, total));
+				tree.seen[row] = -1;
+			}
+
+			int candidates = 0;
+			while (tree.min[1] != NONE) {
+				// The left most row with the lowest value, ties go to the front
+				int row = tree.first();
+				candidates++;
+				if (tree.seen[row] == changes.get(row)) {
+					count(candidates, candidates - 1);
+					return row * seatCount + tree.start[row];
+				}
+
+				// The entry is only a lower bound, calculate the real value
+				lockRow(row);
+				try {
+					// An untouched row is searched as an empty row, so ties are
+					// broken the same way as in a row that has been created
+					int start = optimal ? lowestTotalBlock(row, target, total) : closestBlock(row, target, total);
+					tree.set(row, start < 0 ? NONE : blockScore(row, start, total));
+					tree.start[row] = start;
+					tree.seen[row] = changes.get(row);
+				} finally {
+					unlockRow(row);
+				}
+			}
+			count(candidates, candidates);
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the block whose seed is closest to the center of a row, which
+	 * always has the row's best seed score. A scorer may give seeds further
+	 * to the left the same score though. Those come first in the priority
+	 * list, so the left most block whose seed has that score is the one to
+	 * use. Must be called while holding the row's lock
+	 * 
+	 * @param row
+	 *            - Row to search
+	 * @param target
+	 *            - First column of the ideal block
+	 * @param total
+	 *            - Number of seats in the block
+	 * @return The first column of the best block, or -1 if there is none
+	 */
+	private int closestBlock(int row, int target, int total) {
+		RowIndex index = searchRow(row);
+		int start = index.closestBlock(target, total);
+		if (start < 0) {
+			return start;
+		}
+
+		// The seed closest to the center on the left with the same distance
+		int center = seatCount / 2;
+		int seed = start + total / 2;
+		int hi = Math.min(seed, 2 * center - seed);
+		int lo = total / 2;
+		int score = scorer.score(row, seed, rowCount, seatCount);
+		if (hi - 1 < lo || scorer.score(row, hi - 1, rowCount, seatCount) != score) {
+			return start;
+		}
+
+		// Scores only get worse to the left, so search for the left most seed
+		// that still has the same score
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (scorer.score(row, mid, rowCount, seatCount) == score) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return index.firstBlock(lo - total / 2, total);
+	}
+
+	/**
+	 * Finds the block in a row whose seats have the lowest total score. The
+	 * total only gets worse as a block slides away from the ideal block in
+	 * either direction, so the best block is either the last free block that
+	 * starts at or before the ideal block or the first one that starts at or
+	 * after it. Blocks further to the left can only tie with the left one,
+	 * and the left most of those comes first. Must be called while holding
+	 * the row's lock
+	 * 
+	 * @param row
+	 *            - Row to search
+	 * @param target
+	 *            - First column of the ideal block
+	 * @param total
+	 *            - Number of seats in the block
+	 * @return The first column of the best block, or -1 if there is none
+	 */
+	private int lowestTotalBlock(int row, int target, int total) {
+		RowIndex index = searchRow(row);
+		int left = index.lastBlock(target, total);
+		int right = index.firstBlock(target, total);
+		if (left < 0 || right >= 0 && blockScore(row, right, total) < blockScore(row, left, total)) {
+			return right;
+		}
+
+		int score = blockScore(row, left, total);
+		if (left == 0 || blockScore(row, left - 1, total) != score) {
+			return left;
+		}
+
+		// Search for the left most start that still has the same total
+		int lo = 0;
+		int hi = left;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (blockScore(row, mid, total) == score) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return index.firstBlock(lo, total);
+	}
+
+	/**
+	 * Scores the block of seats in the row specified. The score of the ideal
+	 * block is the best score any block of that size in the row can have
+	 * 
+	 * @param row
+	 *            - Row of the block
+	 * @param start
+	 *            - First column of the block
+	 * @param total
+	 *            - Number of seats in the block
+	 * @return Score of the block's seed, or in SearchMode.OPTIMAL the total
+	 *         score of it's seats
+	 */
+	private int blockScore(int row, int start, int total) {
+		if (!optimal) {
+			return scorer.score(row, start + total / 2, rowCount, seatCount);
+		}
+		long sum = 0;
+		for (int column = start; column < start + total; column++) {
+			sum += scorer.score(row, column, rowCount, seatCount);
+		}
+		return (int) Math.min(sum, NONE - 1);
+	}
+
+	/**
+	 * Get the RowIndex to search for the row specified, which is an empty row
+	 * if the index is lazy and the row has not been used yet
+	 */
+	private RowIndex searchRow(int row) {
+		RowIndex index = rows[row];
+		return index != null ? index : emptyRow;
+	}
+
+	/**
+	 * Get the RowIndex of the row specified, creating it if the index is lazy
+	 * and the row has not been used yet
+	 */
+	private RowIndex row(int row) {
+		RowIndex index = rows[row];
+		if (index == null) {
+			index = new RowIndex(seatCount);
+			rows[row] = index;
+			rowsInUse = Math.max(rowsInUse, row + 1);
+		}
+		return index;
+	}
+
+	/**
+	 * Counts the rows looked at by a search and the rows that had to be
+	 * recalculated
+	 */
+	private void count(int candidates, int probes) {
+		SeatingStats stats = this.stats;
+		if (stats != null) {
+			stats.addCandidates(candidates);
+			stats.addProbes(probes);
+		}
+	}
+
+	/**
+	 * Get the SizeTree for the group size specified, creating it if this is
+	 * the first request of that size
+	 */
+	private SizeTree tree(int total) {
+		SizeTree tree = trees[total];
+		if (tree == null) {
+			synchronized (trees) {
+				tree = trees[total];
+				if (tree == null) {
+					tree = new SizeTree(total, lazy ? 0 : rowCount);
+					trees[total] = tree;
+				}
+			}
+		}
+		return tree;
+	}
+
+	private void lockRow(int row) {
+		if (rowLocks != null) {
+			rowLocks[row].lock();
+		}
+	}
+
+	private void unlockRow(int row) {
+		if (rowLocks != null) {
+			rowLocks[row].unlock();
+		}
+	}
+
+	/**
+	 * A min tree over the rows of the best block score in each row for a
+	 * single group size. The tree covers the first rows of the seating chart
+	 * and can be grown to cover more of them
+	 */
+	private final class SizeTree {
+
+		// Group size the tree is for
+		private final int total;
+
+		// Number of rows covered by the tree
+		private int rows;
+
+		// Number of leaves in the tree, always a power of two
+		private int leaves;
+
+		// Node 1 is the root, leaves start at index 'leaves'
+		private int[] min;
+
+		// First column of the best block in each row when it was last
+		// calculated, and the row's change count at that time
+		private int[] start;
+		private int[] seen;
+
+		// Rows that have had seats freed since the tree was last searched
+		private final Queue<Integer> vacated = new ConcurrentLinkedQueue<Integer>();
+
+		SizeTree(int total, int rows) {
+			this.total = total;
+			leaves = 1;
+			min = new int[] { NONE, NONE };
+			start = new int[1];
+			seen = new int[] { -1 };
+			cover(rows);
+		}
+
+		/**
+		 * Grows the tree to cover the number of rows specified. Nothing has
+		 * been calculated for the new rows yet, so every row starts out with
+		 * the score of it's ideal block as the lower bound
+		 */
+		void cover(int rows) {
+			if (rows <= this.rows) {
+				return;
+			}
+			if (rows > leaves) {
+				int size = leaves;
+				while (size < rows) {
+					size <<= 1;
+				}
+				int[] grown = new int[2 * size];
+				Arrays.fill(grown, NONE);
+				System.arraycopy(min, leaves, grown, size, this.rows);
+				start = Arrays.copyOf(start, size);
+				seen = Arrays.copyOf(seen, size);
+				Arrays.fill(seen, this.rows, size, -1);
+				for (int row = this.rows; row < rows; row++) {
+					grown[size + row] = blockScore(row, seatCount / 2 - total / 2, total);
+				}
+				for (int node = size - 1; node > 0; node--) {
+					grown[node] = Math.min(grown[2 * node], grown[2 * node + 1]);
+				}
+				leaves = size;
+				min = grown;
+			} else {
+				for (int row = this.rows; row < rows; row++) {
+					set(row, blockScore(row, seatCount / 2 - total / 2, total));
+				}
+			}
+			this.rows = rows;
+		}
+
+		/**
+		 * Sets the value of a row and updates every node above it
+		 */
+		void set(int row, int value) {
+			int node = leaves + row;
+			min[node] = value;
+			for (node >>= 1; node > 0; node >>= 1) {
+				min[node] = Math.min(min[2 * node], min[2 * node + 1]);
+			}
+		}
+
+		/**
+		 * Finds the first row that holds the lowest value in the tree
+		 */
+		int first() {
+			int node = 1;
+			while (node < leaves) {
+				node = min[2 * node] == min[node] ? 2 * node : 2 * node + 1;
+			}
+			return node - leaves;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package com.showclix.seating;
+
+/**
+ * The HoldTimer expires seat holds with a hierarchical timing wheel, so that
+ * millions of holds can be waiting at once without each one needing it's own
+ * scheduled task or a priority queue.
+ * 
+ * Time is counted in ticks of a fixed number of milliseconds, and a hold
+ * expires in the first tick that ends at or after it's expiry time. The
+ * wheel has 4 levels of 256 slots. Level 0 has a slot per tick for holds
+ * that expire within the next 256 ticks, level 1 a slot per 256 ticks for
+ * holds that expire within the next 65,536 ticks, and so on. Every time
+ * level 0 wraps around, the next slot of level 1 is moved down into level 0
+ * (and likewise for the higher levels), so each hold is moved at most 3
+ * times before it expires. Adding and removing a hold only link it into or
+ * out of a slot's list, and the cost of advancing the wheel is spread over
+ * the ticks and holds it passes. Holds further out than the wheel reaches
+ * wait in the last level and are placed again when their slot comes around.
+ * 
+ * Every method is synchronized, the timer is shared by every thread using a
+ * concurrent seating chart.
+ * 
+ * @version 1.0
+ * 
+ */
+final class HoldTimer {
+
+	private static final int LEVELS = 4;
+	private static final int SLOT_BITS = 8;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	// Furthest number of ticks ahead the wheel can place a hold
+	private static final long REACH = (1L << (LEVELS * SLOT_BITS)) - 1;
+
+	// Length of a tick in milliseconds
+	private final long tickMillis;
+
+	// First hold of every slot's list, by level and slot
+	private final SeatHold[][] wheel = new SeatHold[LEVELS][SLOTS];
+
+	// Next tick to expire, every tick before it has been expired
+	private long currentTick;
+
+	// Time at which the current tick ends, so callers can tell whether
+	// anything could be due without taking the lock
+	private volatile long nextDue;
+
+	// Number of holds in the wheel
+	private int size = 0;
+
+	/**
+	 * Creates an empty timer
+	 * 
+	 * @param tickMillis
+	 *            - Length of a tick in milliseconds
+	 * @param now
+	 *            - The current time in milliseconds
+	 */
+	HoldTimer(long tickMillis, long now) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("The hold tick must be at least 1 millisecond, not " + tickMillis);
+		}
+		this.tickMillis = tickMillis;
+		this.currentTick = now / tickMillis;
+		this.nextDue = currentTick * tickMillis;
+	}
+
+	/**
+	 * Adds a hold that expires at the hold's expiry time. A hold that has
+	 * already expired is expired by the next advance
+	 * 
+	 * @param hold
+	 *            - Hold that is not in the wheel
+	 */
+	synchronized void add(SeatHold hold) {
+		long expiresAt = hold.getExpiresAt();
+		hold.tick = Math.max(currentTick, expiresAt / tickMillis + (expiresAt % tickMillis != 0 ? 1 : 0));
+		place(hold);
+		size++;
+	}
+
+	/**
+	 * Removes a hold before it expires
+	 * 
+	 * @param hold
+	 *            - Hold to remove
+	 * @return True if the hold was removed, false if it was not in the wheel
+	 *         (it has expired or was already removed)
+	 */
+	synchronized boolean remove(SeatHold hold) {
+		if (hold.level < 0) {
+			return false;
+		}
+		unlink(hold);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Expires every tick that has ended by the time specified
+	 * 
+	 * @param now
+	 *            - The current time in milliseconds
+	 * @return The first hold that expired, linked to the rest through their
+	 *         next field, or null if none expired
+	 */
+	synchronized SeatHold advance(long now) {
+		SeatHold expired = null;
+		while (currentTick * tickMillis <= now) {
+			if (size == 0) {
+				// Nothing to expire or move down, skip straight to now
+				currentTick = now / tickMillis + 1;
+				break;
+			}
+
+			int index = (int) currentTick & SLOT_MASK;
+			if (index == 0) {
+				cascade();
+			}
+
+			// Every hold in the slot expires in this tick
+			SeatHold hold = wheel[0][index];
+			wheel[0][index] = null;
+			while (hold != null) {
+				SeatHold next = hold.next;
+				hold.level = -1;
+				hold.previous = null;
+				hold.next = expired;
+				expired = hold;
+				size--;
+				hold = next;
+			}
+			currentTick++;
+		}
+		nextDue = currentTick * tickMillis;
+		return expired;
+	}
+
+	/**
+	 * Get the time the current tick ends, advance expires nothing before then
+	 * 
+	 * @return Time in milliseconds
+	 */
+	long getNextDue() {
+		return nextDue;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Moves the holds of the next slot of each level down a level, for as
+	 * many levels as have wrapped around
+	 */
+	private void cascade() {
+		for (int level = 1; level < LEVELS; level++) {
+			int index = (int) (currentTick >>> (level * SLOT_BITS)) & SLOT_MASK;
+			SeatHold hold = wheel[level][index];
+			wheel[level][index] = null;
+			while (hold != null) {
+				SeatHold next = hold.next;
+				place(hold);
+				hold = next;
+			}
+			if (index != 0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Links the hold into the slot of the lowest level that reaches it's tick
+	 */
+	private void place(SeatHold hold) {
+		long ticks = Math.min(hold.tick - currentTick, REACH);
+		long tick = currentTick + ticks;
+		int level = 0;
+		while (level < LEVELS - 1 && ticks >= 1L << ((level + 1) * SLOT_BITS)) {
+			level++;
+		}
+		int slot = (int) (tick >>> (level * SLOT_BITS)) & SLOT_MASK;
+
+		SeatHold head = wheel[level][slot];
+		hold.level = level;
+		hold.slot = slot;
+		hold.previous = null;
+		hold.next = head;
+		if (head != null) {
+			head.previous = hold;
+		}
+		wheel[level][slot] = hold;
+	}
+
+	/**
+	 * Unlinks the hold from it's slot's list
+	 */
+	private void unlink(SeatHold hold) {
+		if (hold.previous != null) {
+			hold.previous.next = hold.next;
+		} else {
+			wheel[hold.level][hold.slot] = hold.next;
+		}
+		if (hold.next != null) {
+			hold.next.previous = hold.previous;
+		}
+		hold.level = -1;
+		hold.previous = null;
+		hold.next = null;
+	}
+}
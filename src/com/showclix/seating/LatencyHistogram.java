@@ -0,0 +1,105 @@
+package com.showclix.seating;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies in nanoseconds. Values are counted in
+ * buckets that are a power of two wide, each split into 16 sub-buckets, so a
+ * percentile is always within about 6% of the real value while the whole
+ * histogram is a single fixed size array. Recording a value is one atomic
+ * increment.
+ * 
+ * @version 1.0
+ * 
+ */
+final class LatencyHistogram {
+
+	// Number of sub-buckets each power of two is split into
+	private static final int SUB_BUCKETS = 16;
+	private static final int SUB_BUCKET_BITS = 4;
+
+	// Enough buckets for any positive long
+	private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+	/**
+	 * Counts a latency
+	 * 
+	 * @param nanos
+	 *            - Latency in nanoseconds
+	 */
+	void record(long nanos) {
+		counts.incrementAndGet(bucket(Math.max(0, nanos)));
+	}
+
+	/**
+	 * Get the number of latencies counted
+	 * 
+	 * @return Number of latencies
+	 */
+	long getCount() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Get the latency that the fraction of latencies specified are at or
+	 * below
+	 * 
+	 * @param fraction
+	 *            - For example 0.99 for the 99th percentile
+	 * @return Latency in nanoseconds, the top of the bucket it falls in, or 0
+	 *         if nothing has been counted
+	 */
+	long getPercentile(double fraction) {
+		long total = getCount();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return highestValue(i);
+			}
+		}
+		return highestValue(counts.length() - 1);
+	}
+
+	/**
+	 * Clears every count
+	 */
+	void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+	}
+
+	/**
+	 * Finds the bucket a value is counted in. Values below 16 get a bucket
+	 * each, larger values are split by their highest bit and the 4 bits below
+	 * it
+	 */
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Finds the largest value that is counted in the bucket specified
+	 */
+	static long highestValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,331 @@
+package com.showclix.seating;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.Settings;
+
+/**
+ * The LockFreeSeating class is an alternative to a concurrent Seating chart
+ * that never blocks. The occupancy of every seat is stored as a bit in an
+ * AtomicLongArray, with each row starting on a new word. A request walks the
+ * priority list and grows a block around each seat the same way Seating does,
+ * and once it finds a block whose seats all look free it claims the block
+ * with a compare-and-set on each of it's words. If another thread claimed one
+ * of the seats first, anything already claimed is given back and the search
+ * moves on to the next seat in the priority list.
+ * 
+ * A claim that spans two words can set the bits of the first word and then be
+ * given back, so a seat that looks taken may still become free again. Seats
+ * are only marked as sold once their whole block has been claimed, and the
+ * shared start of the search only moves past sold seats, which stay taken.
+ * 
+ * Placements are the same as Seating when only one thread is making requests.
+ * 
+ * @version 1.0
+ * 
+ */
+public class LockFreeSeating {
+
+	// Total number of Rows in the seating chart
+	private final int rowCount;
+
+	// Total number of columns (or seats per row) in the seating chart
+	private final int seatCount;
+
+	// Number of words used by each row
+	private final int rowWords;
+
+	// One bit per seat, set if the seat has been taken by a pre-reservation
+	// or a group request
+	private final AtomicLongArray occupied;
+
+	// One bit per seat, set once the seat's pre-reservation or whole group
+	// has been claimed. Unlike occupied, a bit set here is never cleared
+	private final AtomicLongArray sold;
+
+	// Seat numbers (row * seatCount + column) from best to worst seat
+	private final int[] priorityList;
+
+	// Every position in the priority list before this one is known to be
+	// sold, so searches can start here
+	private final AtomicInteger firstFree = new AtomicInteger();
+
+	// The maximum number of seats a user can request
+	private final int maxRequests;
+
+	// A counter to keep track of how man seats are still available
+	private final AtomicInteger availableSeats;
+
+	public LockFreeSeating(int rowCount, int seatCount) {
+		this(rowCount, seatCount, SeatScorers.fromSettings());
+	}
+
+	/**
+	 * Constructs a seating chart that scores it's seats with the scorer
+	 * specified instead of the configured one
+	 * 
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @param scorer
+	 *            - Scores the seats, lower is better
+	 */
+	public LockFreeSeating(int rowCount, int seatCount, SeatScorer scorer) {
+		this.rowCount = rowCount;
+		this.seatCount = seatCount;
+		this.rowWords = (seatCount + 63) >>> 6;
+		this.occupied = new AtomicLongArray(rowCount * rowWords);
+		this.sold = new AtomicLongArray(rowCount * rowWords);
+		this.maxRequests = Settings.getInstance().getInt("seating.requests.max", 10);
+		this.availableSeats = new AtomicInteger(rowCount * seatCount);
+
+		// Sort the seats by score, seats with the same score stay in row order
+		priorityList = PriorityOrder.sortSeats(scorer, rowCount, seatCount);
+	}
+
+	/**
+	 * Puts a pre-reservation on the seat at the row and column specified. Rows
+	 * and columns start at 1, the same as Seating.preReserveSeat, and the same
+	 * as Seating a seat that is already taken is not counted again
+	 * 
+	 * @param row
+	 *            - row number of seat to be pre-reserved
+	 * @param column
+	 *            - column number of seat to pre-reserved
+	 * @throws InvalidSeatException
+	 */
+	public void preReserveSeat(int row, int column) throws InvalidSeatException {
+		row--;
+		column--;
+		if (!isValidSeat(row, column)) {
+			throw new InvalidSeatException("No Seat available at row: " + row + " column: " + column);
+		}
+		int word = row * rowWords + (column >>> 6);
+		long mask = 1L << column;
+		if (claim(word, mask)) {
+			setBits(sold, word, mask);
+			availableSeats.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Checks to see if a seat has been taken by a pre-reservation or a group
+	 * request. Rows and columns start at 1
+	 * 
+	 * @param row
+	 *            - row number to check
+	 * @param column
+	 *            - column number of seat to check
+	 * @return true if the seat is reserved, false otherwise
+	 * @throws InvalidSeatException
+	 */
+	public boolean isSeatReserved(int row, int column) throws InvalidSeatException {
+		row--;
+		column--;
+		if (!isValidSeat(row, column)) {
+			throw new InvalidSeatException("No Seat available at row: " + row + " column: " + column);
+		}
+		return (occupied.get(row * rowWords + (column >>> 6)) & (1L << column)) != 0;
+	}
+
+	/**
+	 * Searches for the best placement for the group and claims it, retrying
+	 * with the next candidate whenever another thread gets to a seat first
+	 * 
+	 * @param total
+	 *            - Total size of the group that is looking to be seated
+	 * @return The seats reserved, for example "R1C4 - R1C6", or
+	 *         "Not Available"
+	 * @throws MaximumRequestsExceededException
+	 */
+	public String requestSeats(int total) throws MaximumRequestsExceededException {
+		if (total > maxRequests) {
+			throw new MaximumRequestsExceededException(total + " has exceeded the maximum number of requets: " + maxRequests);
+		}
+
+		int first = reserveSeats(total);
+		if (first < 0) {
+			return "Not Available";
+		} else if (total > 1) {
+			int last = first + total - 1;
+			return Seat.getSeatLabel(first / seatCount, first % seatCount) + " - " + Seat.getSeatLabel(last / seatCount, last % seatCount);
+		}
+		return Seat.getSeatLabel(first / seatCount, first % seatCount);
+	}
+
+	/**
+	 * Places a group the same way as requestSeats(int), but stores the seats
+	 * in the SeatRange specified instead of building a label
+	 * 
+	 * @param total
+	 *            - Total size of the group that is looking to be seated
+	 * @param result
+	 *            - Range the seats are stored in, or set to not available if
+	 *            the group could not be placed
+	 * @return True if the group was placed, false otherwise
+	 * @throws MaximumRequestsExceededException
+	 */
+	public boolean requestSeats(int total, SeatRange result) throws MaximumRequestsExceededException {
+		if (total > maxRequests) {
+			throw new MaximumRequestsExceededException(total + " has exceeded the maximum number of requets: " + maxRequests);
+		}
+
+		int first = reserveSeats(total);
+		if (first < 0) {
+			result.clear();
+			return false;
+		}
+		result.set(first / seatCount, first % seatCount, first % seatCount + total - 1);
+		return true;
+	}
+
+	public int getAvailableSeats() {
+		return availableSeats.get();
+	}
+
+	/**
+	 * Walks the priority list from the first seat that may be free and claims
+	 * the first block that fits
+	 * 
+	 * @param total
+	 *            - Total size of the group that is looking to be seated
+	 * @return The seat number of the first seat claimed, or
+	 *         Seating.NOT_AVAILABLE
+	 */
+	int reserveSeats(int total) {
+		if (total <= 0) {
+			return Seating.NOT_AVAILABLE;
+		}
+
+		// The seed seat of a block has total / 2 seats to it's left
+		int left = total / 2;
+		int right = total - left - 1;
+
+		boolean prefixTaken = true;
+		for (int position = firstFree.get(); position < priorityList.length; position++) {
+			int seat = priorityList[position];
+			int row = seat / seatCount;
+			int column = seat % seatCount;
+
+			if (!isFree(row, column, column)) {
+				// Move the start of future searches past seats that are sold.
+				// A seat that is only claimed may still be given back
+				if (prefixTaken && isSold(row, column)) {
+					firstFree.compareAndSet(position, position + 1);
+				} else {
+					prefixTaken = false;
+				}
+				continue;
+			}
+			prefixTaken = false;
+
+			int from = column - left;
+			int to = column + right;
+			if (from >= 0 && to < seatCount && isFree(row, from, to) && claim(row, from, to)) {
+				for (int word = from >>> 6; word <= to >>> 6; word++) {
+					setBits(sold, row * rowWords + word, mask(word, from, to));
+				}
+				availableSeats.addAndGet(-total);
+				return row * seatCount + from;
+			}
+		}
+		return Seating.NOT_AVAILABLE;
+	}
+
+	/**
+	 * Checks whether every seat in the row between the columns specified
+	 * (inclusive) is currently free
+	 */
+	private boolean isFree(int row, int from, int to) {
+		for (int word = from >>> 6; word <= to >>> 6; word++) {
+			if ((occupied.get(row * rowWords + word) & mask(word, from, to)) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the seat has been sold, which means it stays taken
+	 */
+	private boolean isSold(int row, int column) {
+		return (sold.get(row * rowWords + (column >>> 6)) & (1L << column)) != 0;
+	}
+
+	/**
+	 * Claims every seat in the row between the columns specified (inclusive),
+	 * one word at a time from left to right. If any seat has already been
+	 * taken, the words claimed so far are released again
+	 * 
+	 * @return True if all of the seats were claimed, false otherwise
+	 */
+	private boolean claim(int row, int from, int to) {
+		for (int word = from >>> 6; word <= to >>> 6; word++) {
+			if (!claim(row * rowWords + word, mask(word, from, to))) {
+				for (int claimed = from >>> 6; claimed < word; claimed++) {
+					clearBits(occupied, row * rowWords + claimed, mask(claimed, from, to));
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the bits of the mask in the word specified if none of them are set
+	 * yet
+	 */
+	private boolean claim(int word, long mask) {
+		while (true) {
+			long current = occupied.get(word);
+			if ((current & mask) != 0) {
+				return false;
+			}
+			if (occupied.compareAndSet(word, current, current | mask)) {
+				return true;
+			}
+		}
+	}
+
+	private static void setBits(AtomicLongArray words, int word, long mask) {
+		long current;
+		do {
+			current = words.get(word);
+		} while (!words.compareAndSet(word, current, current | mask));
+	}
+
+	private static void clearBits(AtomicLongArray words, int word, long mask) {
+		long current;
+		do {
+			current = words.get(word);
+		} while (!words.compareAndSet(word, current, current & ~mask));
+	}
+
+	/**
+	 * Builds the mask of the columns between from and to (inclusive) that fall
+	 * inside the word specified
+	 */
+	private static long mask(int word, int from, int to) {
+		int low = Math.max(from, word << 6) & 63;
+		int high = Math.min(to, (word << 6) + 63) & 63;
+		return (-1L >>> (63 - high)) & (-1L << low);
+	}
+
+	/**
+	 * Verifies that the seat number at the specified row and column is a an
+	 * actual seat in the table
+	 * 
+	 * @param row
+	 *            - Row of the seat to check
+	 * @param column
+	 *            - Column of the seat to check
+	 * @return True if the seat is valid, False otherwise
+	 */
+	public boolean isValidSeat(int row, int column) {
+		return (row >= 0 && row < rowCount && column >= 0 && column < seatCount);
+	}
+}
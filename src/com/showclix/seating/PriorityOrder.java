@@ -0,0 +1,215 @@
+package com.showclix.seating;
+
+import java.util.Arrays;
+
+/**
+ * The PriorityOrder holds the seat numbers of the seating chart in order from
+ * best to worst seat, and keeps track of which positions in that order are
+ * still free. Taken seats are skipped over a word (64 positions) at a time,
+ * and a summary bitmap over the words lets whole stretches of sold out seats
+ * at the front of the order be skipped without visiting them, so a search
+ * always starts at the best free seat.
+ * 
+ * Taking or releasing a seat only flips its bits, so a seat that becomes free
+ * again is back in the order in constant time.
+ * 
+ * The order itself is built by sortSeats. Seat scores are small integers for
+ * every built in SeatScorer, so the seats are put in order with a counting
+ * sort in linear time instead of comparing them.
+ * 
+ * @version 1.0
+ * 
+ */
+final class PriorityOrder {
+
+	// Scores are counting sorted as long as there are no more than this many
+	// possible scores per seat, otherwise the counts would cost more than
+	// comparing the seats
+	private static final int COUNTING_SORT_RANGE = 4;
+
+	// Seat numbers (row * seatCount + column) from best to worst
+	private final int[] seats;
+
+	// Position of each seat number in the order
+	private final int[] positions;
+
+	// One bit per position, set if the seat at that position is free
+	private final long[] free;
+
+	// One bit per word of 'free', set if the word has any free positions
+	private final long[] summary;
+
+	/**
+	 * Constructs the order with every seat free
+	 * 
+	 * @param seats
+	 *            - Seat numbers ordered from best to worst seat
+	 */
+	PriorityOrder(int[] seats) {
+		this.seats = seats;
+		this.positions = new int[seats.length];
+		this.free = new long[(seats.length + 63) >>> 6];
+		this.summary = new long[(free.length + 63) >>> 6];
+
+		for (int position = 0; position < seats.length; position++) {
+			positions[seats[position]] = position;
+			free[position >>> 6] |= 1L << position;
+		}
+		for (int word = 0; word < free.length; word++) {
+			summary[word >>> 6] |= 1L << word;
+		}
+	}
+
+	/**
+	 * Orders every seat of a seating chart from best to worst score. Seats
+	 * with the same score stay in seat number order, so ties go to the front
+	 * row and then to the left
+	 * 
+	 * @param scorer
+	 *            - Scores the seats, lower is better
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @return Seat numbers (row * seatCount + column) from best to worst
+	 */
+	static int[] sortSeats(SeatScorer scorer, int rowCount, int seatCount) {
+		int seats = rowCount * seatCount;
+		int[] scores = new int[seats];
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int row = 0, seat = 0; row < rowCount; row++) {
+			for (int column = 0; column < seatCount; column++, seat++) {
+				int score = scorer.score(row, column, rowCount, seatCount);
+				scores[seat] = score;
+				min = Math.min(min, score);
+				max = Math.max(max, score);
+			}
+		}
+
+		int[] order = new int[seats];
+		long range = (long) max - min + 1;
+		if (seats == 0) {
+			return order;
+		} else if (range <= (long) COUNTING_SORT_RANGE * seats) {
+			// Count the seats with each score, then turn the counts into the
+			// first position of each score and drop the seats in. Seats are
+			// visited in seat number order so the sort is stable
+			int[] next = new int[(int) range];
+			for (int seat = 0; seat < seats; seat++) {
+				next[scores[seat] - min]++;
+			}
+			for (int score = 0, position = 0; score < next.length; score++) {
+				int count = next[score];
+				next[score] = position;
+				position += count;
+			}
+			for (int seat = 0; seat < seats; seat++) {
+				order[next[scores[seat] - min]++] = seat;
+			}
+		} else {
+			// The seat number is kept in the low bits of the sort key so seats
+			// with the same score stay in seat number order
+			long[] keys = new long[seats];
+			for (int seat = 0; seat < seats; seat++) {
+				keys[seat] = (long) scores[seat] << 32 | seat;
+			}
+			Arrays.sort(keys);
+			for (int i = 0; i < seats; i++) {
+				order[i] = (int) keys[i];
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Get the number of positions in the order, free or not
+	 * 
+	 * @return Number of seats in the order
+	 */
+	int size() {
+		return seats.length;
+	}
+
+	/**
+	 * Get the seat number at the position specified
+	 * 
+	 * @param position
+	 *            - Position in the order
+	 * @return Seat number at the position
+	 */
+	int seatAt(int position) {
+		return seats[position];
+	}
+
+	/**
+	 * Get the position of the best free seat
+	 * 
+	 * @return Position of the best free seat, or -1 if every seat is taken
+	 */
+	int first() {
+		return next(-1);
+	}
+
+	/**
+	 * Get the position of the next free seat after the position specified
+	 * 
+	 * @param position
+	 *            - Position to search after
+	 * @return Position of the next free seat, or -1 if there are none
+	 */
+	int next(int position) {
+		int from = position + 1;
+		if (from >= seats.length) {
+			return -1;
+		}
+
+		// Check the rest of the current word first
+		int word = from >>> 6;
+		long bits = free[word] & (-1L << from);
+		if (bits != 0) {
+			return (word << 6) + Long.numberOfTrailingZeros(bits);
+		}
+
+		// Then use the summary to jump to the next word with a free seat
+		for (int group = ++word >>> 6; group < summary.length; group++) {
+			long words = summary[group];
+			if (group == word >>> 6) {
+				words &= -1L << word;
+			}
+			if (words != 0) {
+				word = (group << 6) + Long.numberOfTrailingZeros(words);
+				return (word << 6) + Long.numberOfTrailingZeros(free[word]);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes the seat specified from the free seats
+	 * 
+	 * @param seat
+	 *            - Seat number to take
+	 */
+	void take(int seat) {
+		int position = positions[seat];
+		int word = position >>> 6;
+		free[word] &= ~(1L << position);
+		if (free[word] == 0) {
+			summary[word >>> 6] &= ~(1L << word);
+		}
+	}
+
+	/**
+	 * Puts the seat specified back into the free seats
+	 * 
+	 * @param seat
+	 *            - Seat number to release
+	 */
+	void release(int seat) {
+		int position = positions[seat];
+		int word = position >>> 6;
+		free[word] |= 1L << position;
+		summary[word >>> 6] |= 1L << word;
+	}
+}
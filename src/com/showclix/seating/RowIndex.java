@@ -0,0 +1,343 @@
+package com.showclix.seating;
+
+/**
+ * The RowIndex keeps track of the free runs of seats in a single row of the
+ * seating chart. The free seats are stored as a bitmap (one bit per seat, 64
+ * seats per word) and a segment tree is built on top of the words so that the
+ * longest run of free seats, and the closest run that can hold a group, can be
+ * found without walking every seat in the row.
+ * 
+ * Each node of the tree stores the length of the free run touching the left
+ * edge of the node (prefix), the free run touching the right edge (suffix),
+ * and the longest free run anywhere inside the node (best).
+ * 
+ * @version 1.0
+ * 
+ */
+final class RowIndex {
+
+	// Number of seats stored in each word of the bitmap
+	private static final int WORD_SIZE = 64;
+
+	// Number of seats in the row
+	private final int seatCount;
+
+	// Bitmap of free seats, a set bit means the seat is free
+	private final long[] free;
+
+	// Number of leaves in the tree, always a power of two
+	private final int leaves;
+
+	// Segment tree arrays, node 1 is the root and the children of node i are
+	// 2i and 2i + 1. Leaves start at index 'leaves'
+	private final int[] length;
+	private final int[] prefix;
+	private final int[] suffix;
+	private final int[] best;
+
+	// Length of the free run carried between nodes while searching
+	private int run;
+
+	/**
+	 * Constructs the index for a row where every seat is free
+	 * 
+	 * @param seatCount
+	 *            - Number of seats in the row
+	 */
+	RowIndex(int seatCount) {
+		this.seatCount = seatCount;
+
+		int words = (seatCount + WORD_SIZE - 1) / WORD_SIZE;
+		int size = 1;
+		while (size < words) {
+			size <<= 1;
+		}
+		this.leaves = size;
+		this.free = new long[words];
+		this.length = new int[2 * size];
+		this.prefix = new int[2 * size];
+		this.suffix = new int[2 * size];
+		this.best = new int[2 * size];
+
+		for (int word = 0; word < words; word++) {
+			int bits = Math.min(WORD_SIZE, seatCount - word * WORD_SIZE);
+			free[word] = bits == WORD_SIZE ? -1L : (1L << bits) - 1;
+			int node = leaves + word;
+			length[node] = bits;
+			prefix[node] = bits;
+			suffix[node] = bits;
+			best[node] = bits;
+		}
+		for (int node = leaves - 1; node > 0; node--) {
+			merge(node);
+		}
+	}
+
+	/**
+	 * Checks whether the seat in the column specified is free
+	 * 
+	 * @param column
+	 *            - Column of the seat to check
+	 * @return True if the seat is free, false otherwise
+	 */
+	boolean isFree(int column) {
+		return (free[column / WORD_SIZE] & (1L << column)) != 0;
+	}
+
+	/**
+	 * Marks the seats in the columns specified (inclusive) as taken
+	 * 
+	 * @param from
+	 *            - First column to mark
+	 * @param to
+	 *            - Last column to mark
+	 */
+	void occupy(int from, int to) {
+		for (int column = from; column <= to; column++) {
+			free[column / WORD_SIZE] &= ~(1L << column);
+		}
+		update(from / WORD_SIZE, to / WORD_SIZE);
+	}
+
+	/**
+	 * Marks the seats in the columns specified (inclusive) as free
+	 * 
+	 * @param from
+	 *            - First column to mark
+	 * @param to
+	 *            - Last column to mark
+	 */
+	void vacate(int from, int to) {
+		for (int column = from; column <= to; column++) {
+			free[column / WORD_SIZE] |= 1L << column;
+		}
+		update(from / WORD_SIZE, to / WORD_SIZE);
+	}
+
+	/**
+	 * Marks every seat whose bit is set in the words specified as taken. The
+	 * whole tree is rebuilt once, which is much cheaper than occupying each
+	 * run of seats one at a time when restoring a full row
+	 * 
+	 * @param taken
+	 *            - One bit per seat, 64 seats per word, set if the seat is
+	 *            taken
+	 */
+	void occupy(long[] taken) {
+		for (int word = 0; word < free.length; word++) {
+			free[word] &= ~taken[word];
+		}
+		update(0, free.length - 1);
+	}
+
+	/**
+	 * Finds the block of seats that is closest to the target start column
+	 * where every seat of the block is free. When a block on the left and a
+	 * block on the right are equally close, the left one wins, which matches
+	 * the order seats are visited in the priority list.
+	 * 
+	 * @param target
+	 *            - The ideal first column of the block, may be out of bounds
+	 * @param total
+	 *            - Number of seats in the block
+	 * @return The first column of the closest block, or -1 if the row has no
+	 *         block of free seats that is large enough
+	 */
+	int closestBlock(int target, int total) {
+		if (best[1] < total) {
+			return -1;
+		}
+
+		run = 0;
+		int right = searchRight(1, 0, leaves * WORD_SIZE, Math.max(target, 0), total);
+
+		run = 0;
+		int end = searchLeft(1, 0, leaves * WORD_SIZE, Math.min(target + total - 1, seatCount - 1), total);
+		int left = end < 0 ? -1 : end - total + 1;
+
+		if (left < 0) {
+			return right;
+		} else if (right < 0) {
+			return left;
+		}
+		return target - left <= right - target ? left : right;
+	}
+
+	/**
+	 * Finds the left most block of seats that starts at or after the column
+	 * specified where every seat of the block is free
+	 * 
+	 * @param from
+	 *            - First column the block may start at
+	 * @param total
+	 *            - Number of seats in the block
+	 * @return The first column of the block, or -1 if there is none
+	 */
+	int firstBlock(int from, int total) {
+		if (best[1] < total) {
+			return -1;
+		}
+		run = 0;
+		return searchRight(1, 0, leaves * WORD_SIZE, Math.max(from, 0), total);
+	}
+
+	/**
+	 * Finds the right most block of seats that starts at or before the column
+	 * specified where every seat of the block is free
+	 * 
+	 * @param to
+	 *            - Last column the block may start at
+	 * @param total
+	 *            - Number of seats in the block
+	 * @return The first column of the block, or -1 if there is none
+	 */
+	int lastBlock(int to, int total) {
+		if (best[1] < total || to < 0) {
+			return -1;
+		}
+		run = 0;
+		int end = searchLeft(1, 0, leaves * WORD_SIZE, Math.min(to + total - 1, seatCount - 1), total);
+		return end < 0 ? -1 : end - total + 1;
+	}
+
+	/**
+	 * Searches left to right for the first block of free seats that starts at
+	 * or after the column specified
+	 * 
+	 * @return The first column of the block, or -1 if none was found in the
+	 *         node
+	 */
+	private int searchRight(int node, int lo, int hi, int from, int total) {
+		if (hi <= from || lo >= seatCount) {
+			return -1;
+		}
+		if (lo >= from) {
+			if (run + prefix[node] >= total) {
+				return lo - run;
+			}
+			if (best[node] < total) {
+				run = prefix[node] == length[node] ? run + length[node] : suffix[node];
+				return -1;
+			}
+		}
+		if (node >= leaves) {
+			// Walk the word one run of set or cleared bits at a time
+			long word = free[node - leaves];
+			int end = Math.min(hi, seatCount) - lo;
+			for (int bit = Math.max(lo, from) - lo; bit < end;) {
+				long rest = word >>> bit;
+				if ((rest & 1) != 0) {
+					int ones = Math.min(Long.numberOfTrailingZeros(~rest), end - bit);
+					if (run + ones >= total) {
+						return lo + bit - run;
+					}
+					run += ones;
+					bit += ones;
+				} else {
+					run = 0;
+					bit += rest == 0 ? end : Long.numberOfTrailingZeros(rest);
+				}
+			}
+			return -1;
+		}
+		int mid = (lo + hi) >>> 1;
+		int found = searchRight(2 * node, lo, mid, from, total);
+		if (found < 0) {
+			found = searchRight(2 * node + 1, mid, hi, from, total);
+		}
+		return found;
+	}
+
+	/**
+	 * Searches right to left for the last block of free seats that ends at or
+	 * before the column specified
+	 * 
+	 * @return The last column of the block, or -1 if none was found in the
+	 *         node
+	 */
+	private int searchLeft(int node, int lo, int hi, int to, int total) {
+		if (lo > to || lo >= seatCount) {
+			return -1;
+		}
+		int last = Math.min(hi, seatCount) - 1;
+		if (last <= to) {
+			if (run + suffix[node] >= total) {
+				return last + run;
+			}
+			if (best[node] < total) {
+				run = suffix[node] == length[node] ? run + length[node] : prefix[node];
+				return -1;
+			}
+		}
+		if (node >= leaves) {
+			// Walk the word one run of set or cleared bits at a time
+			long word = free[node - leaves];
+			for (int bit = Math.min(last, to) - lo; bit >= 0;) {
+				long rest = word << (63 - bit);
+				if (rest < 0) {
+					int ones = Math.min(Long.numberOfLeadingZeros(~rest), bit + 1);
+					if (run + ones >= total) {
+						return lo + bit + run;
+					}
+					run += ones;
+					bit -= ones;
+				} else {
+					run = 0;
+					bit -= rest == 0 ? bit + 1 : Long.numberOfLeadingZeros(rest);
+				}
+			}
+			return -1;
+		}
+		int mid = (lo + hi) >>> 1;
+		int found = searchLeft(2 * node + 1, mid, hi, to, total);
+		if (found < 0) {
+			found = searchLeft(2 * node, lo, mid, to, total);
+		}
+		return found;
+	}
+
+	/**
+	 * Recalculates the leaves for the words specified (inclusive) and then
+	 * every node above them
+	 */
+	private void update(int fromWord, int toWord) {
+		for (int word = fromWord; word <= toWord; word++) {
+			int node = leaves + word;
+			int bits = length[node];
+			long mask = bits == WORD_SIZE ? -1L : (1L << bits) - 1;
+			long value = free[word] & mask;
+			prefix[node] = Math.min(Long.numberOfTrailingZeros(~value), bits);
+			suffix[node] = value == mask ? bits : bits - 1 - (63 - Long.numberOfLeadingZeros(~value & mask));
+			best[node] = longestRun(value);
+		}
+		for (int node = (leaves + fromWord) >> 1, last = (leaves + toWord) >> 1; node > 0; node >>= 1, last >>= 1) {
+			for (int i = node; i <= last; i++) {
+				merge(i);
+			}
+		}
+	}
+
+	/**
+	 * Combines the two children of the node specified into the node
+	 */
+	private void merge(int node) {
+		int left = 2 * node;
+		int right = left + 1;
+		length[node] = length[left] + length[right];
+		prefix[node] = prefix[left] == length[left] ? length[left] + prefix[right] : prefix[left];
+		suffix[node] = suffix[right] == length[right] ? length[right] + suffix[left] : suffix[right];
+		best[node] = Math.max(Math.max(best[left], best[right]), suffix[left] + prefix[right]);
+	}
+
+	/**
+	 * Calculates the longest run of set bits in the lowest bits of the word
+	 */
+	private static int longestRun(long value) {
+		int longest = 0;
+		while (value != 0) {
+			value &= value >>> 1;
+			longest++;
+		}
+		return longest;
+	}
+}
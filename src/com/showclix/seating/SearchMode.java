@@ -0,0 +1,69 @@
+package com.showclix.seating;
+
+/**
+ * The SearchMode decides how the Seating class searches for a placement when a
+ * group requests seats. The mode can be set through the "seating.search.mode"
+ * configuration.
+ * 
+ * @version 1.0
+ * 
+ */
+public enum SearchMode {
+
+	/**
+	 * Walks the priority list from best to worst seat and grows a block around
+	 * each seat until one fits. This was the original search and is kept as a
+	 * reference. It is the only mode that scans the priority list in parallel
+	 * on charts of at least "seating.search.parallelThreshold" seats
+	 */
+	SCAN,
+
+	/**
+	 * Asks the per-row free run index for the best block. This finds exactly
+	 * the same placements as SCAN without visiting every seat
+	 */
+	INDEX,
+
+	/**
+	 * Searches the same way as INDEX, but nothing is allocated for a row
+	 * until one of it's seats is taken. The seats at Manhattan distance d
+	 * form a ring around the front center seat, and a row nobody has sat in
+	 * yet always has a block centered on ring d = row, so only the rows in
+	 * use plus the first free row behind them are ever searched. A chart of
+	 * any size is built almost instantly and it's memory grows with the
+	 * reservations instead of the number of seats. Seat scores must never get
+	 * better further back, which is true of every built in scorer, and the
+	 * seating chart can not be concurrent
+	 */
+	LAZY,
+
+	/**
+	 * Uses the free run index like INDEX, but instead of ranking a block by
+	 * the seat it would have been grown from, places the group in the block
+	 * whose seats have the lowest total score. A large group can then be
+	 * placed off center in a good row rather than centered in a worse one
+	 */
+	OPTIMAL;
+
+	/**
+	 * Converts a configuration value into a SearchMode. Unknown values will
+	 * fall back to the default mode provided
+	 * 
+	 * @param value
+	 *            - Configuration value, for example "index"
+	 * @param defaultMode
+	 *            - Mode to use if the value is not recognized
+	 * @return The matching SearchMode
+	 */
+	public static SearchMode parse(String value, SearchMode defaultMode) {
+		SearchMode mode = defaultMode;
+		if (value != null) {
+			for (SearchMode candidate : values()) {
+				if (candidate.name().equalsIgnoreCase(value.trim())) {
+					mode = candidate;
+				}
+			}
+		}
+		return mode;
+	}
+}
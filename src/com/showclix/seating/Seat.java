@@ -7,6 +7,10 @@ package com.showclix.seating;
  * Each Seat can be compared to another seat. The Seat that is closest to the
  * front, middle seat will be considered the better of the two
  * 
+ * Seats handed out by a Seating chart are lightweight views, the state of the
+ * seat is stored in the chart itself and every change made through the view
+ * is written straight through to the chart.
+ * 
  * @author Bradley Sheets
  * @version 1.0
  * @date May 6, 2019
@@ -14,6 +18,10 @@ package com.showclix.seating;
  */
 public class Seat implements Comparable<Seat> {
 
+	// The seating chart this seat is a view of, or null if the seat is not
+	// part of a seating chart and keeps it's own state
+	private Seating seating;
+
 	// The row and column number of the seat
 	private int rowNumber;
 	private int colNumber;
@@ -45,6 +53,24 @@ public class Seat implements Comparable<Seat> {
 		this.distance = distance;
 	}
 
+	/**
+	 * Constructs a view of a seat in the seating chart specified. The state of
+	 * the seat is read from and written to the seating chart.
+	 * 
+	 * @param seating
+	 *            - Seating chart the seat belongs to
+	 * @param rowNumber
+	 *            - Row number of the seat
+	 * @param colNumber
+	 *            - Column number of the seat
+	 * @param distance
+	 *            = Manhattan distance from front row, middle seat
+	 */
+	Seat(Seating seating, int rowNumber, int colNumber, int distance) {
+		this(rowNumber, colNumber, distance);
+		this.seating = seating;
+	}
+
 	/**
 	 * Get the pre-calculated Manhattan distance from the front center seat
 	 * 
@@ -80,21 +106,43 @@ public class Seat implements Comparable<Seat> {
 	 * @return String representation of the seat location
 	 */
 	public String getSeatLabel() {
-		return "R" + (rowNumber + 1) + "C" + (colNumber + 1);
+		return getSeatLabel(rowNumber, colNumber);
+	}
+
+	/**
+	 * Returns the string representation of the seat at the row and column
+	 * specified without needing a Seat object
+	 * 
+	 * @param row
+	 *            - Row number of the seat
+	 * @param column
+	 *            - Column number of the seat
+	 * @return String representation of the seat location
+	 */
+	static String getSeatLabel(int row, int column) {
+		return "R" + (row + 1) + "C" + (column + 1);
 	}
 
 	/**
 	 * Flags the seat as reserved so that it cannot be taken by anyone else
 	 */
 	public void setReserved() {
-		reserved = true;
+		if (seating != null) {
+			seating.setReserved(rowNumber, colNumber, true);
+		} else {
+			reserved = true;
+		}
 	}
 
 	/**
 	 * Removes the seat reservation so that someone else can have it
 	 */
 	public void removeReservation() {
-		reserved = false;
+		if (seating != null) {
+			seating.setReserved(rowNumber, colNumber, false);
+		} else {
+			reserved = false;
+		}
 	}
 
 	/**
@@ -103,14 +151,22 @@ public class Seat implements Comparable<Seat> {
 	 * "doors opened to the general public"
 	 */
 	public void setPreReservation() {
-		preReservation = true;
+		if (seating != null) {
+			seating.setPreReserved(rowNumber, colNumber, true);
+		} else {
+			preReservation = true;
+		}
 	}
 
 	/**
 	 * Remove any pre-reservations of the seat so that someone else can have it
 	 */
 	public void removePreReservation() {
-		preReservation = false;
+		if (seating != null) {
+			seating.setPreReserved(rowNumber, colNumber, false);
+		} else {
+			preReservation = false;
+		}
 	}
 
 	/**
@@ -122,9 +178,22 @@ public class Seat implements Comparable<Seat> {
 	 *         available
 	 */
 	public boolean isReserved() {
+		if (seating != null) {
+			return seating.isReserved(rowNumber, colNumber) || seating.isPreReserved(rowNumber, colNumber);
+		}
 		return reserved || preReservation;
 	}
 
+	/**
+	 * Checks whether the seat is held for a group that has not confirmed it
+	 * yet, see Seating.holdSeats. A held seat is also reserved
+	 * 
+	 * @return True if the seat is held
+	 */
+	public boolean isHeld() {
+		return seating != null && seating.isHeld(rowNumber, colNumber);
+	}
+
 	/**
 	 * This method will return a character to indicate it's current availability
 	 * with regard to it's availability.
@@ -133,6 +202,24 @@ public class Seat implements Comparable<Seat> {
 	 *         'O' if the seat was reserved
 	 */
 	public char getSeatStatusSymbol() {
+		if (seating != null) {
+			return getSeatStatusSymbol(seating.isPreReserved(rowNumber, colNumber), seating.isReserved(rowNumber, colNumber));
+		}
+		return getSeatStatusSymbol(preReservation, reserved);
+	}
+
+	/**
+	 * Returns the status symbol for a seat with the reservation flags
+	 * specified without needing a Seat object
+	 * 
+	 * @param preReservation
+	 *            - True if the seat was pre-reserved
+	 * @param reserved
+	 *            - True if the seat was reserved
+	 * @return '-' if the seat is available, 'X' if the seat was pre-reserved,
+	 *         'O' if the seat was reserved
+	 */
+	static char getSeatStatusSymbol(boolean preReservation, boolean reserved) {
 		char symbol = '-';
 		if (preReservation) {
 			symbol = 'X';
@@ -0,0 +1,118 @@
+package com.showclix.seating;
+
+/**
+ * A SeatHold is a group of seats that are set aside for a limited time, for
+ * example while a customer pays at checkout. Held seats can not be given to
+ * anyone else, but unless the hold is confirmed before it expires the seats
+ * go back to being available. See Seating.holdSeats.
+ * 
+ * A hold is also the entry for it's seats in the timing wheel that expires
+ * the holds, so holding seats does not create anything else.
+ * 
+ * @version 1.0
+ * 
+ */
+public final class SeatHold {
+
+	// States of a hold
+	static final int HELD = 0;
+	static final int CONFIRMED = 1;
+	static final int CANCELLED = 2;
+	static final int EXPIRED = 3;
+
+	// The seating chart the seats are held on
+	private final Seating seating;
+
+	private final SeatRange range;
+
+	// Time the hold expires at, in milliseconds of the seating chart's clock
+	private final long expiresAt;
+
+	private volatile int state = HELD;
+
+	// Tick of the timing wheel the hold expires in, and the level and slot of
+	// the wheel it is linked into, level -1 while it is not in the wheel
+	long tick;
+	int level = -1;
+	int slot;
+
+	// Neighbors in the wheel slot's list, next also links the holds that
+	// expired together
+	SeatHold previous;
+	SeatHold next;
+
+	/**
+	 * Creates a hold on the seating chart specified that expires at the time
+	 * specified. It's seats are filled in by the seating chart once they are
+	 * reserved
+	 */
+	SeatHold(Seating seating, long expiresAt) {
+		this.seating = seating;
+		this.range = new SeatRange();
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * Get the seats that are held
+	 * 
+	 * @return The seats
+	 */
+	public SeatRange getRange() {
+		return range;
+	}
+
+	/**
+	 * Get the seating chart the seats are held on
+	 * 
+	 * @return The seating chart
+	 */
+	public Seating getSeating() {
+		return seating;
+	}
+
+	long getExpiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * Checks whether the seats are still held, neither confirmed, cancelled
+	 * nor expired
+	 * 
+	 * @return True if the seats are held
+	 */
+	public boolean isHeld() {
+		return state == HELD;
+	}
+
+	/**
+	 * Checks whether the hold was confirmed, making the seats a normal
+	 * reservation
+	 * 
+	 * @return True if the hold was confirmed
+	 */
+	public boolean isConfirmed() {
+		return state == CONFIRMED;
+	}
+
+	/**
+	 * Checks whether the hold ran out before it was confirmed or cancelled
+	 * 
+	 * @return True if the hold expired
+	 */
+	public boolean isExpired() {
+		return state == EXPIRED;
+	}
+
+	void setState(int state) {
+		this.state = state;
+	}
+
+	/**
+	 * Holds are printed the same way as their seats, for example "R1C4 -
+	 * R1C6"
+	 */
+	@Override
+	public String toString() {
+		return range.toString();
+	}
+}
@@ -0,0 +1,119 @@
+package com.showclix.seating;
+
+/**
+ * A SeatRange is the result of a group request: the row and the first and last
+ * column of the seats the group was given, or "not available" if the group
+ * could not be placed. Rows and columns start at 0, the same as Seat.
+ * 
+ * A SeatRange only holds ints, and the same object can be passed to
+ * Seating.requestSeats(int, SeatRange) over and over, so placing a group does
+ * not create any objects. The label, for example "R1C4 - R1C6", is only built
+ * when the range is printed.
+ * 
+ * @version 1.0
+ * 
+ */
+public final class SeatRange {
+
+	// Row of the seats, or -1 if the group could not be placed
+	private int row = -1;
+
+	// First and last column of the seats (inclusive)
+	private int startColumn = -1;
+	private int endColumn = -1;
+
+	/**
+	 * Creates a range that is not available, ready to be filled in by a
+	 * request
+	 */
+	public SeatRange() {
+	}
+
+	/**
+	 * Creates a range of the seats in the row between the columns specified
+	 * 
+	 * @param row
+	 *            - Row of the seats
+	 * @param startColumn
+	 *            - First column of the seats
+	 * @param endColumn
+	 *            - Last column of the seats (inclusive)
+	 */
+	public SeatRange(int row, int startColumn, int endColumn) {
+		set(row, startColumn, endColumn);
+	}
+
+	/**
+	 * Sets the seats of the range
+	 */
+	void set(int row, int startColumn, int endColumn) {
+		this.row = row;
+		this.startColumn = startColumn;
+		this.endColumn = endColumn;
+	}
+
+	/**
+	 * Marks the range as not available
+	 */
+	void clear() {
+		set(-1, -1, -1);
+	}
+
+	/**
+	 * Checks whether the range holds any seats
+	 * 
+	 * @return False if the group could not be placed, true otherwise
+	 */
+	public boolean isAvailable() {
+		return row >= 0;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getStartColumn() {
+		return startColumn;
+	}
+
+	public int getEndColumn() {
+		return endColumn;
+	}
+
+	/**
+	 * Get the number of seats in the range
+	 * 
+	 * @return Number of seats, 0 if the range is not available
+	 */
+	public int size() {
+		return isAvailable() ? endColumn - startColumn + 1 : 0;
+	}
+
+	/**
+	 * Ranges are printed the same way requestSeats(int) returns them, for
+	 * example "R1C4 - R1C6", "R2C5" or "Not Available"
+	 */
+	@Override
+	public String toString() {
+		if (!isAvailable()) {
+			return "Not Available";
+		} else if (endColumn > startColumn) {
+			return Seat.getSeatLabel(row, startColumn) + " - " + Seat.getSeatLabel(row, endColumn);
+		}
+		return Seat.getSeatLabel(row, startColumn);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof SeatRange)) {
+			return false;
+		}
+		SeatRange range = (SeatRange) o;
+		return row == range.row && startColumn == range.startColumn && endColumn == range.endColumn;
+	}
+
+	@Override
+	public int hashCode() {
+		return (row * 31 + startColumn) * 31 + endColumn;
+	}
+}
@@ -0,0 +1,36 @@
+package com.showclix.seating;
+
+/**
+ * A SeatScorer decides how good every seat in the seating chart is. Seats
+ * with a lower score are better, and groups are placed around the best free
+ * seat. Seats with the same score are ranked by row and then by column.
+ * 
+ * Scores have to be integers below Integer.MAX_VALUE, and within a row a
+ * seat's score may only depend on how far it is from the center seat (column
+ * seatCount / 2), never getting better as the seat moves further away. Every
+ * built in scorer in SeatScorers follows these rules, which are what allow
+ * the free run index to find the same placements as walking the priority
+ * list. Scores that are close together also let the priority list be built
+ * with a counting sort.
+ * 
+ * @version 1.0
+ * 
+ */
+public interface SeatScorer {
+
+	/**
+	 * Scores the seat at the row and column specified. Rows and columns start
+	 * at 0
+	 * 
+	 * @param row
+	 *            - Row of the seat
+	 * @param column
+	 *            - Column of the seat
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @return Score of the seat, lower is better
+	 */
+	int score(int row, int column, int rowCount, int seatCount);
+}
@@ -0,0 +1,120 @@
+package com.showclix.seating;
+
+import com.showclix.seating.util.Settings;
+
+/**
+ * The SeatScorers class holds the built in ways of scoring seats and reads
+ * which one to use from the configuration:
+ * 
+ * "seating.score" is "manhattan" (the default), "euclidean" or the class name
+ * of a SeatScorer with a public no argument constructor.
+ * "seating.score.scale" is how many points the euclidean score gives per seat
+ * of distance, so that fractions of a seat are not all rounded together.
+ * "seating.score.balconyRow" is the first row (starting at 1) of a balcony
+ * whose seats get "seating.score.balconyPenalty" added to their score, 0 for
+ * no balcony.
+ * 
+ * @version 1.0
+ * 
+ */
+public final class SeatScorers {
+
+	/**
+	 * Manhattan distance from the 1st row, center seat. This is the original
+	 * scoring of the seating chart
+	 */
+	public static final SeatScorer MANHATTAN = new SeatScorer() {
+		@Override
+		public int score(int row, int column, int rowCount, int seatCount) {
+			return row + Math.abs(seatCount / 2 - column);
+		}
+	};
+
+	private SeatScorers() {
+	}
+
+	/**
+	 * Straight line distance from the 1st row, center seat
+	 * 
+	 * @param scale
+	 *            - Points per seat of distance, the distance is rounded to the
+	 *            nearest point
+	 * @return The scorer
+	 */
+	public static SeatScorer euclidean(final int scale) {
+		if (scale <= 0) {
+			throw new IllegalArgumentException("The euclidean scale must be at least 1, not " + scale);
+		}
+		return new SeatScorer() {
+			@Override
+			public int score(int row, int column, int rowCount, int seatCount) {
+				long offset = seatCount / 2 - column;
+				return (int) Math.round(scale * Math.sqrt((long) row * row + offset * offset));
+			}
+		};
+	}
+
+	/**
+	 * Adds a penalty to every seat from the row specified back, for example a
+	 * balcony that should only be sold once the floor is full
+	 * 
+	 * @param scorer
+	 *            - Scorer of the seats before the penalty
+	 * @param firstRow
+	 *            - First row that gets the penalty, starting at 0
+	 * @param penalty
+	 *            - Points added to the score of those seats
+	 * @return The scorer
+	 */
+	public static SeatScorer balcony(final SeatScorer scorer, final int firstRow, final int penalty) {
+		return new SeatScorer() {
+			@Override
+			public int score(int row, int column, int rowCount, int seatCount) {
+				int score = scorer.score(row, column, rowCount, seatCount);
+				return row >= firstRow ? score + penalty : score;
+			}
+		};
+	}
+
+	/**
+	 * Builds the scorer set in the configuration. Unknown scorer names fall
+	 * back to Manhattan distance
+	 * 
+	 * @return The configured scorer
+	 * @throws IllegalArgumentException
+	 *             If a scorer class is configured that can not be created
+	 */
+	public static SeatScorer fromSettings() {
+		return fromSettings(Settings.getInstance());
+	}
+
+	/**
+	 * Builds the scorer set in the settings specified
+	 * 
+	 * @param settings
+	 *            - Settings to read the scorer from
+	 * @return The configured scorer
+	 * @throws IllegalArgumentException
+	 *             If a scorer class is configured that can not be created
+	 */
+	public static SeatScorer fromSettings(Settings settings) {
+		String name = settings.getString("seating.score", "manhattan").trim();
+
+		SeatScorer scorer = MANHATTAN;
+		if (name.equalsIgnoreCase("euclidean")) {
+			scorer = euclidean(settings.getInt("seating.score.scale", 10));
+		} else if (name.indexOf('.') >= 0) {
+			try {
+				scorer = (SeatScorer) Class.forName(name).getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				throw new IllegalArgumentException("Could not create the seat scorer " + name, e);
+			}
+		}
+
+		int balconyRow = settings.getInt("seating.score.balconyRow", 0);
+		if (balconyRow > 0) {
+			scorer = balcony(scorer, balconyRow - 1, settings.getInt("seating.score.balconyPenalty", 0));
+		}
+		return scorer;
+	}
+}
@@ -1,17 +1,43 @@
 package com.showclix.seating;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.showclix.seating.exceptions.InvalidSeatException;
 import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.InputParser;
 import com.showclix.seating.util.Output;
 import com.showclix.seating.util.Settings;
 
 /**
  * The Seating class is responsible for handling and deciding where reservations
  * should be placed based on Manhattan distance from the 1st row, center seat.
+ * Seats can be scored differently by configuring a SeatScorer, see
+ * SeatScorers.
+ * 
+ * The state of every seat is kept in packed bitsets, one set of words per row.
+ * Seats are numbered row * seatCount + column. Seat objects are only created
+ * as views when a caller asks for one through getSeat.
+ * 
+ * A concurrent seating chart can be used from many threads at once. Each row
+ * has it's own lock, so requests that are placed in different rows are
+ * reserved in parallel. A placement is searched for without holding any row
+ * lock and is then checked again under the lock of it's row before it is
+ * reserved, if another thread took one of the seats in the meantime the
+ * search is simply repeated.
+ * 
+ * Seats can also be held for a limited time with holdSeats, for example
+ * during checkout. Holds that are not confirmed in time are expired in bulk
+ * by a timing wheel and their seats become available again.
+ * 
+ * A seating chart can grow while it is in use with resize. Every reservation
+ * keeps it's row and column, and the seats are ranked again for the new size
+ * of the chart.
  * 
  * @author Bradley Sheets
  * @version 1.0
@@ -20,66 +46,239 @@ import com.showclix.seating.util.Settings;
  */
 public class Seating {
 
+	// Result of a batch request for a group that could not be placed
+	public static final int NOT_AVAILABLE = -1;
+
+	// Result of a batch request for a group larger than the maximum number of
+	// seats a user can request
+	public static final int EXCEEDS_MAXIMUM = -2;
+
+	// Number of priority list positions each parallel scan task walks on it's
+	// own before splitting
+	private static final int SCAN_CHUNK = 8192;
+
+	// Shared by every seating chart for parallel scans, the threads are only
+	// started once a parallel scan happens
+	private static final ForkJoinPool SCAN_POOL = new ForkJoinPool();
+
+	// Holds are timed in milliseconds from when the class is loaded, so the
+	// clock never goes below 0
+	private static final long CLOCK_ORIGIN = System.nanoTime();
+
+	// Snapshots start with "SEAT" followed by the version of the format
+	private static final int SNAPSHOT_MAGIC = 0x53454154;
+	private static final int SNAPSHOT_VERSION = 1;
+
+	// Size of the snapshot header, the magic number, version, row count, seat
+	// count, search mode, concurrent flag and available seats
+	private static final int SNAPSHOT_HEADER = 7 * 4;
+
 	// Total number of Rows in the seating chart
 	private int rowCount;
 
 	// Total number of columns (or seats per row) in the seating chart
 	private int seatCount;
 
-	// Matrix of Seat objects that make up the seating chart
-	private Seat[][] seatingChart;
+	// One bit per seat, set if the seat has been reserved by a group request.
+	// Each row has it's own words so that rows can be locked separately. In
+	// SearchMode.LAZY a row's words are null until one of it's seats is taken
+	private long[][] reserved;
+
+	// One bit per seat, set if the seat has been pre-reserved
+	private long[][] preReserved;
+
+	// One bit per seat, set while the seat is held by a SeatHold. Held seats
+	// are also reserved. Null until the first hold, and a row's words are
+	// only created once one of it's seats is held
+	private long[][] held;
+
+	// Scores every seat, Manhattan distance unless configured otherwise
+	private SeatScorer scorer;
+
+	// This data structure will keep the seat numbers in order from best to
+	// worst seat based on their score, skipping the seats that have been
+	// taken. It is only needed when searching in SearchMode.SCAN
+	private PriorityOrder priorityList;
+
+	// Index of the free runs of seats in each row. This is kept up to date as
+	// seats are reserved so that a placement can be found without walking the
+	// whole priority list
+	private FreeRunIndex freeRuns;
 
-	// This data structure will keep a list of references to seat objects in
-	// order from best to worst seat based
-	// on Manhattan distance
-	private List<Seat> priorityList;
+	// How placements are searched for, see SearchMode
+	private SearchMode searchMode;
+
+	// Charts with at least this many seats split the priority list scan into
+	// chunks that are searched in parallel. Only SearchMode.SCAN scans the
+	// priority list, the other modes answer from the free run index
+	private int parallelThreshold;
+
+	// One lock per row when the seating chart is concurrent, null otherwise
+	private ReentrantLock[] rowLocks;
 
 	// A variable that will be set in the constructor that represents the
 	// maximum number of seats a user can request
 	private int maxRequests;
 
 	// A counter to keep track of how man seats are still available
-	private int availableSeats = 0;
+	private AtomicInteger availableSeats = new AtomicInteger();
+
+	// Journal that every change to the seats is written to, null if changes
+	// are only kept in memory
+	private volatile SeatingJournal journal;
+
+	// Cost of the group requests, null unless statistics are being collected
+	private volatile SeatingStats stats;
+
+	// Number of times the chart has been resized. A search that started
+	// before a resize is repeated rather than reserved
+	private volatile int generation = 0;
+
+	// Expires the seat holds, null until the first hold
+	private volatile HoldTimer holds;
+
+	// Length of a tick of the hold timer in milliseconds
+	private int holdTick;
+
+	// Number of seats that are held
+	private AtomicInteger heldSeats = new AtomicInteger();
 
 	public Seating(int rowCount, int seatCount) {
+		this(rowCount, seatCount, Settings.getInstance());
+	}
+
+	/**
+	 * Constructs a seating chart that is configured by the settings specified
+	 * instead of the configuration file, for example settings that override
+	 * a few values for a single scenario
+	 * 
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @param settings
+	 *            - Settings to configure the seating chart with
+	 */
+	public Seating(int rowCount, int seatCount, Settings settings) {
+		this(rowCount, seatCount, SearchMode.parse(settings.getString("seating.search.mode", "index"), SearchMode.INDEX),
+				settings.getBoolean("seating.concurrent", false), SeatScorers.fromSettings(settings), settings);
+	}
+
+	/**
+	 * Constructs a seating chart that will use the search mode specified
+	 * instead of the configured one
+	 * 
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @param searchMode
+	 *            - How placements will be searched for
+	 */
+	public Seating(int rowCount, int seatCount, SearchMode searchMode) {
+		this(rowCount, seatCount, searchMode, false);
+	}
+
+	/**
+	 * Constructs a seating chart that will use the search mode specified and
+	 * can optionally be shared between threads. The scan is a single threaded
+	 * reference search and lazy rows are created without locking, so a
+	 * concurrent seating chart must use INDEX or OPTIMAL.
+	 * 
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @param searchMode
+	 *            - How placements will be searched for
+	 * @param concurrent
+	 *            - True if the seating chart will be used by many threads
+	 */
+	public Seating(int rowCount, int seatCount, SearchMode searchMode, boolean concurrent) {
+		this(rowCount, seatCount, searchMode, concurrent, SeatScorers.fromSettings());
+	}
+
+	/**
+	 * Constructs a seating chart that scores it's seats with the scorer
+	 * specified instead of the configured one
+	 * 
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @param searchMode
+	 *            - How placements will be searched for
+	 * @param concurrent
+	 *            - True if the seating chart will be used by many threads
+	 * @param scorer
+	 *            - Scores the seats, lower is better
+	 */
+	public Seating(int rowCount, int seatCount, SearchMode searchMode, boolean concurrent, SeatScorer scorer) {
+		this(rowCount, seatCount, searchMode, concurrent, scorer, Settings.getInstance());
+	}
+
+	/**
+	 * Constructs the seating chart, reading the rest of it's configuration
+	 * from the settings specified
+	 */
+	private Seating(int rowCount, int seatCount, SearchMode searchMode, boolean concurrent, SeatScorer scorer, Settings settings) {
+		if (concurrent && (searchMode == SearchMode.SCAN || searchMode == SearchMode.LAZY)) {
+			throw new IllegalArgumentException("A concurrent seating chart can not search in " + searchMode + " mode");
+		}
 		this.seatCount = seatCount;
 		this.rowCount = rowCount;
+		this.searchMode = searchMode;
+		this.scorer = scorer;
 
-		this.priorityList = new ArrayList<>();
+		if (concurrent) {
+			rowLocks = new ReentrantLock[rowCount];
+			for (int row = 0; row < rowCount; row++) {
+				rowLocks[row] = new ReentrantLock();
+			}
+		}
 
-		this.maxRequests = Settings.getInstance().getInt("seating.requests.max", 10);
+		this.maxRequests = settings.getInt("seating.requests.max", 10);
+		this.parallelThreshold = settings.getInt("seating.search.parallelThreshold", 250000);
+		this.holdTick = settings.getInt("seating.holds.tick", 100);
 		// initialize data structure
 		initializeSeatingChart();
+
+		if (settings.getBoolean("seating.stats.enabled", false)) {
+			setStatistics(new SeatingStats(maxRequests));
+		}
 	}
 
 	/**
 	 * This method should be called upon instantiation of the Seating object via
-	 * the constructor in order to properly build the seating chart. The seating
-	 * chart is a double array where each value is a Seat object. The Seat
-	 * object will be aware of it's location as well as it's Manhattan distance
-	 * from the "best seat in the house". By calculating this during
-	 * construction, it can be referred to thereafter without having to
-	 * calculate it elsewhere
+	 * the constructor in order to properly build the seating chart. Every seat
+	 * starts out free, so the bitsets start out empty. The score of a seat is
+	 * cheap to calculate from it's row and column so it is not stored, it is
+	 * only used to build the priority list when searching in SearchMode.SCAN.
+	 * In SearchMode.LAZY the words of a row are only created once the row is
+	 * used
 	 */
 	private void initializeSeatingChart() {
-		// Initialize the array in memory
-		seatingChart = new Seat[rowCount][seatCount];
+		int seats = rowCount * seatCount;
+		if (searchMode == SearchMode.LAZY) {
+			reserved = new long[rowCount][];
+			preReserved = new long[rowCount][];
+		} else {
+			reserved = new long[rowCount][(seatCount + 63) >>> 6];
+			preReserved = new long[rowCount][(seatCount + 63) >>> 6];
+		}
 
-		// Populate the rows and columns
-		for (int row = 0; row < rowCount; row++) {
-			for (int column = 0; column < seatCount; column++) {
-				Seat seat = new Seat(row, column, calculateDistance(row, column));
-				seatingChart[row][column] = seat;
-				priorityList.add(seat);
-			}
+		if (searchMode == SearchMode.SCAN) {
+			// To make the seats into a "priority list", sort them based on
+			// their score, seats with the same score stay in row order
+			priorityList = new PriorityOrder(PriorityOrder.sortSeats(scorer, rowCount, seatCount));
 		}
-		// To make the array into a "priority list", sort the array based on
-		// Manhattan distance
-		Collections.sort(priorityList);
+
+		// Every run of seats starts out free
+		freeRuns = new FreeRunIndex(rowCount, seatCount, rowLocks, scorer, searchMode);
 
 		// The default number of available seats is simply the number of rows
 		// multiplied by the number of columns
-		availableSeats = rowCount * seatCount;
+		availableSeats.set(seats);
 	}
 
 	/**
@@ -90,21 +289,23 @@ public class Seating {
 	 *            row number of the seat
 	 * @param column
 	 *            column number of the seat
-	 * @return The Seat object that is located in the row and column specified
+	 * @return A Seat object that is a view of the seat located in the row and
+	 *         column specified
 	 * @throws InvalidSeatException
 	 */
 	public Seat getSeat(int row, int column) throws InvalidSeatException {
 		if (!isValidSeat(row, column)) {
 			throw new InvalidSeatException("No Seat available at row: " + row + " column: " + column);
 		}
-		return seatingChart[row][column];
+		return new Seat(this, row, column, calculateDistance(row, column));
 
 	}
 
 	/**
 	 * "Pre-Reservations" are reservations that are made before group placements
 	 * are searched for. This method will put a pre-reservation on the seat at
-	 * the row and column specified.
+	 * the row and column specified. Pre-reserving a seat that is already taken
+	 * does not change the number of available seats.
 	 * 
 	 * @param row
 	 *            - row number of seat to be pre-reserved
@@ -113,6 +314,8 @@ public class Seating {
 	 * @throws InvalidSeatException
 	 */
 	public void preReserveSeat(int row, int column) throws InvalidSeatException {
+		checkJournal();
+
 		// Account for the "off-by-one" behavior of the array
 		row = row - 1;
 		column = column - 1;
@@ -120,8 +323,20 @@ public class Seating {
 		// Assert that the seat is an actual seat that can be reserved
 		if (isValidSeat(row, column)) {
 			// Pre-Reserve the seat
-			seatingChart[row][column].setPreReservation();
-			availableSeats--;
+			boolean taken;
+			lockRow(row);
+			try {
+				taken = getBit(reserved[row], column) || getBit(preReserved[row], column);
+				setBits(words(preReserved, row), column, column, true);
+				updateFreeRuns(row, column);
+				appendJournal(SeatingJournal.PRE_RESERVE, row, column, column);
+			} finally {
+				unlockRow(row);
+			}
+			if (!taken) {
+				availableSeats.decrementAndGet();
+			}
+			syncJournal();
 		} else {
 			throw new InvalidSeatException("No Seat available at row: " + row + " column: " + column);
 		}
@@ -136,12 +351,97 @@ public class Seating {
 	 * @throws InvalidSeatException
 	 */
 	public void preReserveSeat(String reservation) throws InvalidSeatException {
-		String[] parts = reservation.split("C");
-		int row = Integer.parseInt(parts[0].replaceAll("[^0-9]", ""));
-		int col = Integer.parseInt(parts[1].replaceAll("[^0-9]", ""));
+		// The row is made up of the digits before the 'C' and the column of the
+		// digits after it
+		int row = 0;
+		int col = 0;
+		int separators = 0;
+		for (int i = 0; i < reservation.length(); i++) {
+			char c = reservation.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (separators == 0) {
+					row = InputParser.appendDigit(row, c);
+				} else if (separators == 1) {
+					col = InputParser.appendDigit(col, c);
+				}
+			} else if (c == 'C') {
+				separators++;
+			}
+		}
 		preReserveSeat(row, col);
 	}
 
+	/**
+	 * Releases the seat at the row and column specified, whether it was
+	 * reserved by a group request or pre-reserved, so that it can be given to
+	 * another group. Rows and columns start at 1, the same as preReserveSeat.
+	 * Releasing a seat that is not taken does nothing
+	 * 
+	 * @param row
+	 *            - row number of the seat to release
+	 * @param column
+	 *            - column number of the seat to release
+	 * @return True if the seat was taken and is now free
+	 * @throws InvalidSeatException
+	 */
+	public boolean release(int row, int column) throws InvalidSeatException {
+		return release(row, column, column) > 0;
+	}
+
+	/**
+	 * Releases every seat in the row between the columns specified
+	 * (inclusive). Rows and columns start at 1. The number of available seats
+	 * and the search structures are updated for just the seats released, so
+	 * the cost grows with the number of seats and the log of the row length
+	 * 
+	 * @param row
+	 *            - row number of the seats to release
+	 * @param startColumn
+	 *            - column number of the first seat to release
+	 * @param endColumn
+	 *            - column number of the last seat to release
+	 * @return The number of seats that were taken and are now free
+	 * @throws InvalidSeatException
+	 */
+	public int release(int row, int startColumn, int endColumn) throws InvalidSeatException {
+		checkJournal();
+		row--;
+		startColumn--;
+		endColumn--;
+		if (!isValidSeat(row, startColumn) || !isValidSeat(row, endColumn) || endColumn < startColumn) {
+			throw new InvalidSeatException("No Seats available at row: " + row + " columns: " + startColumn + " - " + endColumn);
+		}
+
+		int released;
+		lockRow(row);
+		try {
+			released = releaseSeats(row, startColumn, endColumn);
+			if (released > 0) {
+				appendJournal(SeatingJournal.RELEASE, row, startColumn, endColumn);
+			}
+		} finally {
+			unlockRow(row);
+		}
+		syncJournal();
+		return released;
+	}
+
+	/**
+	 * Releases the seats of a group placed by requestSeats(int, SeatRange),
+	 * for example when the order is refunded or abandoned
+	 * 
+	 * @param range
+	 *            - The seats to release
+	 * @return The number of seats that were taken and are now free
+	 * @throws InvalidSeatException
+	 */
+	public int release(SeatRange range) throws InvalidSeatException {
+		if (!range.isAvailable()) {
+			return 0;
+		}
+		return release(range.getRow() + 1, range.getStartColumn() + 1, range.getEndColumn() + 1);
+	}
+
 	/**
 	 * Checks to see if a seat is reserved either by pre-reservation or normal
 	 * reservation
@@ -158,7 +458,12 @@ public class Seating {
 		column--;
 		boolean reserved = false;
 		if (isValidSeat(row, column)) {
-			reserved = seatingChart[row][column].isReserved();
+			lockRow(row);
+			try {
+				reserved = !freeRuns.isFree(row, column);
+			} finally {
+				unlockRow(row);
+			}
 		} else {
 			throw new InvalidSeatException("No Seat available at row: " + row + " column: " + column);
 		}
@@ -179,184 +484,1377 @@ public class Seating {
 	 */
 	public String requestSeats(int total) throws MaximumRequestsExceededException {
 
-		String seatLabel = "Not Available";
+		if (total > maxRequests) {
+			throw new MaximumRequestsExceededException(total + " has exceeded the maximum number of requets: " + maxRequests);
+		}
+		checkJournal();
+
+		// Search for a seating placement and reserve it
+		SeatRange result = new SeatRange();
+		expireDueHolds();
+		reserveSeats(total, result, false);
+		syncJournal();
+
+		return result.toString();
+
+	}
 
+	/**
+	 * Places a group the same way as requestSeats(int), but stores the seats
+	 * in the SeatRange specified instead of building a label. The same range
+	 * can be reused for every request, so nothing is created per request
+	 * 
+	 * @param total
+	 *            - Total size of the group that is looking to be seated
+	 * @param result
+	 *            - Range the seats are stored in, or set to not available if
+	 *            the group could not be placed
+	 * @return True if the group was placed, false otherwise
+	 * @throws MaximumRequestsExceededException
+	 */
+	public boolean requestSeats(int total, SeatRange result) throws MaximumRequestsExceededException {
 		if (total > maxRequests) {
 			throw new MaximumRequestsExceededException(total + " has exceeded the maximum number of requets: " + maxRequests);
 		}
+		checkJournal();
+
+		expireDueHolds();
+		boolean placed = reserveSeats(total, result, false);
+		syncJournal();
+		return placed;
+	}
+
+	/**
+	 * Places a whole batch of groups in one pass. Each group is placed exactly
+	 * as if requestSeats had been called for it on it's own, in the order of
+	 * the array, but no Strings or Lists are created along the way.
+	 * 
+	 * The result for group i is stored in results[2i] (first seat number) and
+	 * results[2i + 1] (last seat number), where the seat number is row *
+	 * seatCount + column. If the group could not be placed both values are
+	 * NOT_AVAILABLE, and if the group was larger than the maximum number of
+	 * seats a user can request both values are EXCEEDS_MAXIMUM instead of an
+	 * exception being thrown. The results array can be reused between
+	 * batches.
+	 * 
+	 * @param groups
+	 *            - Sizes of the groups looking to be seated
+	 * @param results
+	 *            - Array of at least twice the number of groups that the
+	 *            results will be written to
+	 * @return The number of groups that were placed
+	 */
+	public int requestSeats(int[] groups, int[] results) {
+		if (results.length < groups.length * 2) {
+			throw new IllegalArgumentException("Results need room for " + groups.length * 2 + " values but only have " + results.length);
+		}
+		checkJournal();
+
+		expireDueHolds();
+		SeatRange result = new SeatRange();
+		int placed = 0;
+		for (int i = 0; i < groups.length; i++) {
+			int total = groups[i];
+			int first = EXCEEDS_MAXIMUM;
+			int last = EXCEEDS_MAXIMUM;
 
-		// Search for a seating placement
-		List<Seat> seats = findSeats(total);
-		// If a seating placement was found
-		if (!seats.isEmpty()) {
-			for (Seat seat : seats) {
-				seat.setReserved();
+			if (total <= maxRequests) {
+				first = NOT_AVAILABLE;
+				last = NOT_AVAILABLE;
+				if (reserveSeats(total, result, false)) {
+					first = result.getRow() * seatCount + result.getStartColumn();
+					last = first + total - 1;
+					placed++;
+				}
 			}
+			results[2 * i] = first;
+			results[2 * i + 1] = last;
+		}
+
+		// The whole batch shares a single write to the journal
+		syncJournal();
+		return placed;
+	}
+
+	/**
+	 * Places a whole batch of groups in one pass, see requestSeats(int[],
+	 * int[])
+	 * 
+	 * @param groups
+	 *            - Sizes of the groups looking to be seated
+	 * @return The first and last seat number of every group
+	 */
+	public int[] requestSeats(int[] groups) {
+		int[] results = new int[groups.length * 2];
+		requestSeats(groups, results);
+		return results;
+	}
+
+	/**
+	 * Formats the first and last seat number of a placement the same way
+	 * requestSeats(int) does, for example "R1C4 - R1C6", "R2C5" or
+	 * "Not Available"
+	 * 
+	 * @param first
+	 *            - Seat number of the first seat in the placement
+	 * @param last
+	 *            - Seat number of the last seat in the placement
+	 * @return The label of the placement
+	 */
+	public String getResultLabel(int first, int last) {
+
+		String seatLabel = "Not Available";
 
+		if (first >= 0) {
 			// Format the output to show a range of seats
-			if (seats.size() > 1) {
-				seatLabel = seats.get(0) + " - " + seats.get(seats.size() - 1);
+			if (last > first) {
+				seatLabel = Seat.getSeatLabel(first / seatCount, first % seatCount) + " - " + Seat.getSeatLabel(last / seatCount, last % seatCount);
 
 				// Or single seat depending on how many seats were requested
 			} else {
-				seatLabel = seats.get(0).toString();
+				seatLabel = Seat.getSeatLabel(first / seatCount, first % seatCount);
 			}
-
-			// decrement the total number available seats by how many seats were
-			// just reserved
-			availableSeats -= total;
 		}
 
 		return seatLabel;
-
 	}
 
-	public int getAvailableSeats() {
-		return this.availableSeats;
+	/**
+	 * Searches for a placement for the group and reserves it
+	 * 
+	 * @param total
+	 *            - Total size of the group that is looking to be seated
+	 * @param result
+	 *            - Range the seats are stored in, or set to not available if
+	 *            the group could not be placed
+	 * @param hold
+	 *            - True to mark the seats as held, see holdSeats
+	 * @return True if the group was placed, false otherwise
+	 */
+	private boolean reserveSeats(int total, SeatRange result, boolean hold) {
+		SeatingStats stats = this.stats;
+		if (stats == null) {
+			return findAndReserveSeats(total, result, hold);
+		}
+		long start = System.nanoTime();
+		boolean placed = findAndReserveSeats(total, result, hold);
+		stats.record(total, placed, System.nanoTime() - start);
+		return placed;
 	}
 
 	/**
-	 * Provide the total number of seats that are required for the group to be
-	 * seated, this method will find the best group of seats available for
-	 * seating. The return value from this method will be an array of the seats
-	 * that can be reserved
+	 * Searches for a placement for the group and reserves it, searching again
+	 * if another thread takes one of the seats first. The seats are stored in
+	 * the result while the row is still locked, so a resize right after the
+	 * reservation can not change which seats they are
 	 * 
 	 * @param total
-	 *            - The total size of the group that is looking to be seated
-	 * @return - The starting seat where the group can be assigned. This method
-	 *         will return 'null' if there are locations for the group to be
-	 *         placed
-	 * 
+	 *            - Total size of the group that is looking to be seated
+	 * @param result
+	 *            - Range the seats are stored in, or set to not available if
+	 *            the group could not be placed
+	 * @param hold
+	 *            - True to mark the seats as held in the same step, so they
+	 *            can not be released and given to someone else before they
+	 *            are marked
+	 * @return True if the group was placed, false otherwise
 	 */
-	private List<Seat> findSeats(int total) {
-
-		List<Seat> seats = new ArrayList<Seat>();
+	private boolean findAndReserveSeats(int total, SeatRange result, boolean hold) {
+		while (true) {
+			// Search for a seating placement
+			int generation = this.generation;
+			int first = findSeats(total);
+			if (first < 0) {
+				result.clear();
+				return false;
+			}
 
-		// All of the seats have been pre-ordered. Iterate
-		// over the list of seats from best to worst
-		for (Seat prioritySeat : priorityList) {
+			int row = first / seatCount;
+			int column = first % seatCount;
+			int last = column + total - 1;
 
-			seats = checkNeighbors(prioritySeat, total);
+			lockRow(row);
+			try {
+				// Another thread may have taken one of the seats or resized
+				// the chart since the search, in which case the search is
+				// repeated
+				if (generation == this.generation && freeRuns.isFree(row, column, last)) {
+					setBits(words(reserved, row), column, last, true);
+					occupy(row, column, last);
+					appendJournal(SeatingJournal.RESERVE, row, column, last);
+					if (hold) {
+						setBits(words(held, row), column, last, true);
+						heldSeats.addAndGet(total);
+					}
 
-			if (seats.size() < total) {
-				seats.clear();
-			} else {
-				break;
+					// decrement the total number available seats by how many
+					// seats were just reserved
+					availableSeats.addAndGet(-total);
+					result.set(row, column, last);
+					return true;
+				}
+			} finally {
+				unlockRow(row);
 			}
 		}
+	}
 
-		return seats;
+	public int getAvailableSeats() {
+		// Holds that have run out are expired first so their seats count as
+		// available. Reading the count never fails because of the journal: a
+		// failed journal leaves the holds for the next change to report
+		SeatingJournal journal = this.journal;
+		if (journal == null || !journal.isFailed()) {
+			try {
+				expireDueHolds();
+			} catch (IllegalStateException e) {
+				// The journal failed writing the expired holds, every change
+				// from now on is refused
+			}
+		}
+		return this.availableSeats.get();
 	}
 
 	/**
-	 * Returns a list of all the seats surrounding the seat passed in
-	 * (inclusive) by first checking if the seat is available. If it is, it will
-	 * then check the seat to it's left, then to it's right, and then two over
-	 * to the left, then two over to the right, etc, until there are no
-	 * available seats or the total number of seats requested has been found
+	 * Holds the best seats for a group for the number of milliseconds
+	 * specified, the same seats requestSeats would give the group. The seats
+	 * are taken until the hold is confirmed, which turns them into a normal
+	 * reservation, or until it is cancelled or expires, which makes them
+	 * available again. Holds that have run out are expired in bulk as the
+	 * seating chart is used, at the latest one hold tick
+	 * ("seating.holds.tick" milliseconds) after they run out, or by calling
+	 * expireHolds.
+	 * 
+	 * Holds are only kept in memory. Journals and snapshots record held seats
+	 * as reserved, so a restored chart keeps them without a time limit
 	 * 
-	 * @param seat
-	 *            - Seat to check the availability of and the availability of
-	 *            it's neighboring seats
 	 * @param total
-	 *            - The total number of seats needed to be available
-	 * @return A list of the best available seats around the neighbor. The
-	 *         number of seats in the list will be equal to or less than the
-	 *         total number requested depending on how many were found.
+	 *            - Total size of the group that is looking to be seated
+	 * @param ttlMillis
+	 *            - How long to hold the seats for in milliseconds
+	 * @return The hold, or null if the group could not be placed
+	 * @throws MaximumRequestsExceededException
 	 */
-	private List<Seat> checkNeighbors(Seat seat, int total) {
-		// The array of seats that will be returned
-		List<Seat> seats = new ArrayList<Seat>();
+	public SeatHold holdSeats(int total, long ttlMillis) throws MaximumRequestsExceededException {
+		if (total > maxRequests) {
+			throw new MaximumRequestsExceededException(total + " has exceeded the maximum number of requets: " + maxRequests);
+		}
+		checkJournal();
+		HoldTimer holds = holdTimer();
+		expireDueHolds();
 
-		// By default we will be looking at the seat passed in, eg: the middle
-		// seat so the offset and seat count are 0
-		int offset = 0;
-		int count = 0;
+		// A hold long enough to go past the end of time never expires
+		long now = clock();
+		long expiresAt = ttlMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + Math.max(0, ttlMillis);
+		SeatHold hold = new SeatHold(this, expiresAt);
+		boolean placed = reserveSeats(total, hold.getRange(), true);
+		syncJournal();
+		if (!placed) {
+			return null;
+		}
+		holds.add(hold);
+		return hold;
+	}
 
-		// The multiplier will be used to check left, then right, then 2 left,
-		// etc
-		int multiplier = -1;
+	/**
+	 * Turns a hold made by this seating chart into a normal reservation,
+	 * unless it has already run out
+	 * 
+	 * @param hold
+	 *            - The hold to confirm
+	 * @return True if the seats are now reserved, false if the hold had
+	 *         expired or was already confirmed or cancelled
+	 * @throws IllegalArgumentException
+	 *             If the hold was made by another seating chart
+	 */
+	public boolean confirm(SeatHold hold) {
+		checkHold(hold);
+		checkJournal();
+		expireDueHolds();
+		HoldTimer holds = this.holds;
+		if (holds == null || !holds.remove(hold)) {
+			return false;
+		}
+		hold.setState(SeatHold.CONFIRMED);
+		SeatRange range = hold.getRange();
+		lockRow(range.getRow());
+		try {
+			clearHeld(range.getRow(), range.getStartColumn(), range.getEndColumn());
+		} finally {
+			unlockRow(range.getRow());
+		}
+		return true;
+	}
 
-		// starting with the seat passed into the method, until the number of
-		// seats found equals the total
-		for (int column = seat.getColumn(); seats.size() < total; column += offset) {
+	/**
+	 * Gives up a hold made by this seating chart before it runs out, making
+	 * it's seats available again
+	 * 
+	 * @param hold
+	 *            - The hold to cancel
+	 * @return True if the hold was cancelled, false if it had expired or was
+	 *         already confirmed or cancelled
+	 * @throws IllegalArgumentException
+	 *             If the hold was made by another seating chart
+	 */
+	public boolean cancel(SeatHold hold) {
+		checkHold(hold);
+		checkJournal();
+		HoldTimer holds = this.holds;
+		if (holds == null || !holds.remove(hold)) {
+			return false;
+		}
+		hold.setState(SeatHold.CANCELLED);
+		releaseHeld(hold.getRange());
+		syncJournal();
+		return true;
+	}
 
-			// Break if the seat isn't valid/out of bounds
-			if (isValidSeat(seat.getRow(), column)) {
+	/**
+	 * Expires every hold that has run out, making it's seats available again.
+	 * The holds are expired a whole tick of the timing wheel at a time
+	 * 
+	 * @return The number of seats made available
+	 */
+	public int expireHolds() {
+		checkJournal();
+		HoldTimer holds = this.holds;
+		if (holds == null) {
+			return 0;
+		}
+		int released = 0;
+		SeatHold hold = holds.advance(clock());
+		while (hold != null) {
+			SeatHold next = hold.next;
+			hold.next = null;
+			hold.setState(SeatHold.EXPIRED);
+			released += releaseHeld(hold.getRange());
+			hold = next;
+		}
+		if (released > 0) {
+			syncJournal();
+		}
+		return released;
+	}
 
-				// Get the next seat
-				Seat temp = seatingChart[seat.getRow()][column];
+	/**
+	 * Refuses a hold that was made by another seating chart, whose place in
+	 * the timing wheel and seats mean nothing to this one
+	 */
+	private void checkHold(SeatHold hold) {
+		if (hold.getSeating() != this) {
+			throw new IllegalArgumentException("The hold " + hold + " was not made by this seating chart");
+		}
+	}
 
-				// check if it's reserved and if it's not, add it into the list
-				if (!temp.isReserved()) {
+	/**
+	 * Expires the holds that have run out, if any could have. Charts without
+	 * holds only pay for reading the timer
+	 */
+	private void expireDueHolds() {
+		HoldTimer holds = this.holds;
+		if (holds != null && clock() >= holds.getNextDue()) {
+			expireHolds();
+		}
+	}
 
-					// Depending on which way we're checking, left or right, we
-					// will add it to the start
-					// or end of the list
-					if (multiplier == -1) {
-						seats.add(temp);
-					} else {
-						seats.add(0, temp);
-					}
-				} else {
-					break;
+	/**
+	 * Get the hold timer, creating it on the first hold
+	 */
+	private HoldTimer holdTimer() {
+		HoldTimer holds = this.holds;
+		if (holds == null) {
+			synchronized (this) {
+				holds = this.holds;
+				if (holds == null) {
+					held = new long[rowCount][];
+					holds = new HoldTimer(holdTick, clock());
+					this.holds = holds;
 				}
+			}
+		}
+		return holds;
+	}
 
-				// increment the count and calculate the next offset
-				count++;
-				offset = count * multiplier;
-				multiplier *= -1;
-			} else {
-				break;
+	/**
+	 * Releases the seats of a hold that are still held. Seats that were
+	 * released some other way may have been given to someone else since
+	 * 
+	 * @return The number of seats made available
+	 */
+	private int releaseHeld(SeatRange range) {
+		int row = range.getRow();
+		int released = 0;
+		lockRow(row);
+		try {
+			int column = range.getStartColumn();
+			while (column <= range.getEndColumn()) {
+				if (!getBit(held[row], column)) {
+					column++;
+					continue;
+				}
+				int end = column;
+				while (end < range.getEndColumn() && getBit(held[row], end + 1)) {
+					end++;
+				}
+				int count = releaseSeats(row, column, end);
+				if (count > 0) {
+					appendJournal(SeatingJournal.RELEASE, row, column, end);
+				}
+				released += count;
+				column = end + 1;
 			}
+		} finally {
+			unlockRow(row);
 		}
-		return seats;
+		return released;
 	}
 
 	/**
-	 * Verifies that the seat number at the specified row and column is a an
-	 * actual seat in the table
+	 * Get the number of seats that are held and not yet confirmed
+	 * 
+	 * @return Number of held seats
+	 */
+	public int getHeldSeats() {
+		expireDueHolds();
+		return heldSeats.get();
+	}
+
+	/**
+	 * Checks whether a seat is held by a hold that has not been confirmed yet
 	 * 
 	 * @param row
-	 *            - Row of the seat to check
+	 *            - row number to check
 	 * @param column
-	 *            - Column of the seat to check
-	 * @return True if the seat is valid, False otherwise
+	 *            - column number of seat to check
+	 * @return true if the seat is held, false otherwise
+	 * @throws InvalidSeatException
 	 */
-	public boolean isValidSeat(int row, int column) {
-		return (row >= 0 && row < rowCount && column >= 0 && column < seatCount);
+	public boolean isSeatHeld(int row, int column) throws InvalidSeatException {
+		row--;
+		column--;
+		if (!isValidSeat(row, column)) {
+			throw new InvalidSeatException("No Seat available at row: " + row + " column: " + column);
+		}
+		expireDueHolds();
+		return isHeld(row, column);
 	}
 
 	/**
-	 * Given a row and column value, calculate the distance from the best seat
-	 * in the house which is specified per requirements as the first/top row,
-	 * center seat - this is calculated using Manhattan distance
+	 * Milliseconds since the class was loaded, the clock holds are timed with
+	 */
+	private static long clock() {
+		return (System.nanoTime() - CLOCK_ORIGIN) / 1000000;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public int getSeatCount() {
+		return seatCount;
+	}
+
+	/**
+	 * Starts collecting the cost of every group request into the statistics
+	 * specified. Charts can share statistics
 	 * 
-	 * @param r
-	 *            - The row number of the seat checking the distance for
-	 * @param c
-	 *            - The column number of the seat we're checking the distance
-	 *            for
-	 * @return The Manhattan distance of the seat relative to the row 1, center
-	 *         seat
+	 * @param stats
+	 *            - Statistics to collect into, or null to stop collecting
 	 */
-	private int calculateDistance(int r, int c) {
-		return Math.abs(r - 0) + Math.abs(seatCount / 2 - c);
+	public void setStatistics(SeatingStats stats) {
+		this.stats = stats;
+		freeRuns.setStatistics(stats);
 	}
 
 	/**
-	 * This method will print the seating table with 'X' values representing the
-	 * pre-reserved seats in line 1 of the input and 'O' values representing the
-	 * algorithmically selected seats based on the calculated "best" location
-	 * available
+	 * Get the statistics the chart is collecting into
+	 * 
+	 * @return The statistics, or null if none are being collected
 	 */
-	public void print() {
+	public SeatingStats getStatistics() {
+		return stats;
+	}
+
+	/**
+	 * Grows the seating chart to the size specified without losing any
+	 * reservations. Every reserved, pre-reserved and held seat keeps it's row
+	 * and column, the new seats start out free and the seats are ranked again
+	 * around the center of the wider rows, so later groups are placed exactly
+	 * as they would be on a new chart of that size with the same seats taken.
+	 * 
+	 * Every row is locked while the chart is rebuilt. On a concurrent chart a
+	 * request that was searching while the chart was resized searches again.
+	 * The resize is written to the journal like any other change, so a chart
+	 * recovered from the journal comes back at the new size
+	 * 
+	 * @param newRowCount
+	 *            - Number of rows, at least the current number
+	 * @param newSeatCount
+	 *            - Number of seats in each row, at least the current number
+	 * @throws IllegalArgumentException
+	 *             If the chart would get smaller
+	 */
+	public synchronized void resize(int newRowCount, int newSeatCount) {
+		checkJournal();
+		ReentrantLock[] lockedRows = rowLocks;
+		lockAllRows();
+		try {
+			if (newRowCount < rowCount || newSeatCount < seatCount) {
+				throw new IllegalArgumentException("A seating chart can only grow, not shrink from " + rowCount + "x" + seatCount + " to " + newRowCount + "x"
+						+ newSeatCount);
+			}
+			if (newRowCount == rowCount && newSeatCount == seatCount) {
+				return;
+			}
+			int oldRowCount = rowCount;
+			long[][] oldReserved = reserved;
+			long[][] oldPreReserved = preReserved;
+			long[][] oldHeld = held;
+			int available = availableSeats.get() + newRowCount * newSeatCount - rowCount * seatCount;
+
+			// The old rows keep their locks, which are held until the new
+			// chart is in place
+			if (rowLocks != null) {
+				rowLocks = Arrays.copyOf(rowLocks, newRowCount);
+				for (int row = oldRowCount; row < newRowCount; row++) {
+					rowLocks[row] = new ReentrantLock();
+				}
+			}
+			rowCount = newRowCount;
+			seatCount = newSeatCount;
+			initializeSeatingChart();
+			if (oldHeld != null) {
+				held = new long[newRowCount][];
+			}
+
+			// Columns keep their bit in the row's words, the new seats are
+			// the bits after them
+			for (int row = 0; row < oldRowCount; row++) {
+				if (oldReserved[row] != null) {
+					System.arraycopy(oldReserved[row], 0, words(reserved, row), 0, oldReserved[row].length);
+				}
+				if (oldPreReserved[row] != null) {
+					System.arraycopy(oldPreReserved[row], 0, words(preReserved, row), 0, oldPreReserved[row].length);
+				}
+				if (oldHeld != null && oldHeld[row] != null) {
+					System.arraycopy(oldHeld[row], 0, words(held, row), 0, oldHeld[row].length);
+				}
+			}
+			occupyTakenSeats(oldRowCount);
+			availableSeats.set(available);
+			freeRuns.setStatistics(stats);
+			generation++;
+			appendJournal(SeatingJournal.RESIZE, newRowCount, newSeatCount, 0);
+		} finally {
+			if (lockedRows != null) {
+				for (int row = lockedRows.length - 1; row >= 0; row--) {
+					lockedRows[row].unlock();
+				}
+			}
+		}
+		syncJournal();
+	}
+
+	/**
+	 * Get the number of bytes a snapshot of this seating chart takes up
+	 * 
+	 * @return Size of the snapshot in bytes
+	 */
+	public int getSnapshotSize() {
+		return SNAPSHOT_HEADER + 2 * rowCount * ((seatCount + 63) >>> 6) * 8;
+	}
+
+	/**
+	 * Writes a compact snapshot of the seating chart into the buffer. The
+	 * snapshot holds the size of the chart, how it searches, the number of
+	 * available seats and two bits per seat for the reserved and pre-reserved
+	 * flags. Every row is locked while the snapshot is taken so that a
+	 * concurrent chart is captured in a consistent state.
+	 * 
+	 * @param buffer
+	 *            - Buffer with at least getSnapshotSize() bytes remaining
+	 */
+	public void writeSnapshot(ByteBuffer buffer) {
+		lockAllRows();
+		try {
+			buffer.putInt(SNAPSHOT_MAGIC);
+			buffer.putInt(SNAPSHOT_VERSION);
+			buffer.putInt(rowCount);
+			buffer.putInt(seatCount);
+			buffer.putInt(searchMode.ordinal());
+			buffer.putInt(rowLocks != null ? 1 : 0);
+			buffer.putInt(availableSeats.get());
+			putWords(buffer, reserved);
+			putWords(buffer, preReserved);
+		} finally {
+			unlockAllRows();
+		}
+	}
+
+	/**
+	 * Creates a seating chart from a snapshot written by writeSnapshot. The
+	 * search structures are rebuilt from the reserved runs of each row rather
+	 * than by replaying every reservation.
+	 * 
+	 * Only the seats are part of the snapshot. The seats are scored by the
+	 * configured SeatScorer rather than the one the chart was created with,
+	 * held seats come back as reserved without a time limit, and the restored
+	 * chart starts without statistics.
+	 * 
+	 * @param buffer
+	 *            - Buffer positioned at the start of a snapshot
+	 * @return The restored seating chart
+	 * @throws IOException
+	 *             If the buffer does not hold a seating chart snapshot, or the
+	 *             snapshot is truncated or corrupt
+	 */
+	public static Seating readSnapshot(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < SNAPSHOT_HEADER || buffer.getInt() != SNAPSHOT_MAGIC) {
+			throw new IOException("Not a seating chart snapshot");
+		}
+		int version = buffer.getInt();
+		if (version != SNAPSHOT_VERSION) {
+			throw new IOException("Unsupported seating chart snapshot version: " + version);
+		}
+		int rowCount = buffer.getInt();
+		int seatCount = buffer.getInt();
+		int mode = buffer.getInt();
+		boolean concurrent = buffer.getInt() == 1;
+		int available = buffer.getInt();
+
+		// Check everything read against the size of the buffer before the
+		// chart is allocated, so a corrupt header can not ask for a huge chart
+		if (rowCount <= 0 || seatCount <= 0) {
+			throw new IOException("Seating chart snapshot has an invalid size: " + rowCount + " x " + seatCount);
+		} else if (mode < 0 || mode >= SearchMode.values().length) {
+			throw new IOException("Seating chart snapshot has an unknown search mode: " + mode);
+		} else if (buffer.remaining() < 2L * rowCount * ((seatCount + 63L) >>> 6) * 8) {
+			throw new IOException("Seating chart snapshot is truncated");
+		} else if (available < 0 || available > (long) rowCount * seatCount) {
+			throw new IOException("Seating chart snapshot has an invalid number of available seats: " + available);
+		}
+		SearchMode searchMode = SearchMode.values()[mode];
+		if (concurrent && (searchMode == SearchMode.SCAN || searchMode == SearchMode.LAZY)) {
+			throw new IOException("Seating chart snapshot is concurrent in " + searchMode + " mode");
+		}
+
+		Seating seating = new Seating(rowCount, seatCount, searchMode, concurrent);
+		seating.getWords(buffer, seating.reserved);
+		seating.getWords(buffer, seating.preReserved);
+
+		seating.occupyTakenSeats(rowCount);
+		seating.availableSeats.set(available);
+		return seating;
+	}
+
+	/**
+	 * Takes every seat that is reserved in any way out of the search
+	 * structures a whole row at a time, for the rows before the one specified
+	 */
+	private void occupyTakenSeats(int rows) {
+		long[] taken = new long[(seatCount + 63) >>> 6];
+		for (int row = 0; row < rows; row++) {
+			long any = 0;
+			for (int word = 0; word < taken.length; word++) {
+				taken[word] = 0;
+				if (reserved[row] != null) {
+					taken[word] |= reserved[row][word];
+				}
+				if (preReserved[row] != null) {
+					taken[word] |= preReserved[row][word];
+				}
+				any |= taken[word];
+			}
+			if (any == 0 && searchMode == SearchMode.LAZY) {
+				continue;
+			}
+			freeRuns.occupy(row, taken);
+			if (priorityList != null) {
+				for (int word = 0; word < taken.length; word++) {
+					for (long bits = taken[word]; bits != 0; bits &= bits - 1) {
+						priorityList.take(row * seatCount + (word << 6) + Long.numberOfTrailingZeros(bits));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the words of every row, a row without words is written as free
+	 */
+	private void putWords(ByteBuffer buffer, long[][] rows) {
+		int length = (seatCount + 63) >>> 6;
+		for (long[] words : rows) {
+			for (int word = 0; word < length; word++) {
+				buffer.putLong(words != null ? words[word] : 0);
+			}
+		}
+	}
+
+	/**
+	 * Reads the words of every row, only creating the words of a row that
+	 * has seats taken when the chart is lazy
+	 */
+	private void getWords(ByteBuffer buffer, long[][] rows) {
+		int length = (seatCount + 63) >>> 6;
+		for (int row = 0; row < rows.length; row++) {
+			for (int word = 0; word < length; word++) {
+				long bits = buffer.getLong();
+				if (bits != 0 || rows[row] != null) {
+					words(rows, row)[word] = bits;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a compact snapshot of the seating chart, see writeSnapshot
+	 * 
+	 * @return The snapshot
+	 */
+	public byte[] toBytes() {
+		byte[] bytes = new byte[getSnapshotSize()];
+		writeSnapshot(ByteBuffer.wrap(bytes));
+		return bytes;
+	}
+
+	/**
+	 * Creates a seating chart from a snapshot created by toBytes
+	 * 
+	 * @param bytes
+	 *            - The snapshot
+	 * @return The restored seating chart
+	 * @throws IOException
+	 *             If the bytes do not hold a seating chart snapshot
+	 */
+	public static Seating fromBytes(byte[] bytes) throws IOException {
+		return readSnapshot(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Roughly estimates the number of bytes of heap this seating chart uses,
+	 * so that the number of charts kept in memory can be limited
+	 * 
+	 * @return Estimated heap size in bytes
+	 */
+	long getMemoryEstimate() {
+		long words = (seatCount + 63) >>> 6;
+		long leaves = Long.highestOneBit(Math.max(1, words * 2 - 1));
+
+		// Reserved and pre-reserved words, then the row's free run index and
+		// it's entry in each per group size tree
+		long perRow = 2 * (16 + words * 8) + 64 + words * 8 + 4 * (16 + leaves * 8) + 16L * Math.min(maxRequests, seatCount);
+		long total = 256 + freeRuns.getRowsInUse() * perRow;
+		if (searchMode == SearchMode.LAZY) {
+			// References to the rows that have not been used yet
+			total += 16L * rowCount;
+		}
+		if (priorityList != null) {
+			total += 8L * rowCount * seatCount;
+		}
+		return total;
+	}
+
+	/**
+	 * Provide the total number of seats that are required for the group to be
+	 * seated, this method will find the best group of seats available for
+	 * seating. The seats of a placement are always next to each other in the
+	 * same row, so only the first one is returned
+	 * 
+	 * @param total
+	 *            - The total size of the group that is looking to be seated
+	 * @return - The seat number (row * seatCount + column) of the first seat
+	 *         where the group can be assigned. This method will return
+	 *         NOT_AVAILABLE if there are no locations for the group to be
+	 *         placed
+	 * 
+	 */
+	private int findSeats(int total) {
+		if (total <= 0) {
+			return NOT_AVAILABLE;
+		}
+		if (searchMode == SearchMode.SCAN) {
+			return scanPriorityList(total);
+		}
+		return freeRuns.find(total);
+	}
+
+	/**
+	 * The original search for a placement, which visits every seat in the
+	 * priority list from best to worst until a block of seats can be grown
+	 * around one of them
+	 * 
+	 * @param total
+	 *            - The total size of the group that is looking to be seated
+	 * @return The seat number of the first seat of the placement, or
+	 *         NOT_AVAILABLE if there is no placement
+	 */
+	private int scanPriorityList(int total) {
+		int position;
+		if (rowCount * seatCount >= parallelThreshold) {
+			// Search chunks of the priority list in parallel and keep the
+			// lowest position found, which is the one a single scan would find
+			AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE);
+			SCAN_POOL.invoke(new ScanTask(total, 0, priorityList.size(), found));
+			position = found.get() == Integer.MAX_VALUE ? -1 : found.get();
+		} else {
+			position = scanPriorityList(total, priorityList.first(), Integer.MAX_VALUE);
+		}
+
+		if (position >= 0) {
+			int prioritySeat = priorityList.seatAt(position);
+			int row = prioritySeat / seatCount;
+			return row * seatCount + checkNeighbors(row, prioritySeat % seatCount, total);
+		}
+		return NOT_AVAILABLE;
+	}
+
+	/**
+	 * Walks the free seats in the priority list from the position specified
+	 * until a block of seats can be grown around one of them
+	 * 
+	 * @param total
+	 *            - The total size of the group that is looking to be seated
+	 * @param position
+	 *            - Position of the first free seat to check, or -1 if there
+	 *            are none
+	 * @param limit
+	 *            - Position to stop at (exclusive)
+	 * @return The position of the seat the block can be grown around, or -1
+	 *         if there is none before the limit
+	 */
+	private int scanPriorityList(int total, int position, int limit) {
+
+		// All of the seats have been pre-ordered. Iterate
+		// over the free seats from best to worst
+		int visited = 0;
+		for (; position >= 0 && position < limit; position = priorityList.next(position)) {
+			int prioritySeat = priorityList.seatAt(position);
+			visited++;
+
+			if (checkNeighbors(prioritySeat / seatCount, prioritySeat % seatCount, total) >= 0) {
+				return counted(position, visited, 0);
+			}
+		}
+
+		return counted(-1, visited, 0);
+	}
+
+	/**
+	 * Sets the number of seats a chart needs before the priority list scan is
+	 * split up and searched in parallel. This overrides the
+	 * "seating.search.parallelThreshold" configuration for this chart. Only
+	 * charts in SearchMode.SCAN scan the priority list, so the threshold has
+	 * no effect in the other modes
+	 * 
+	 * @param seats
+	 *            - Number of seats, 0 to always scan in parallel
+	 */
+	public void setParallelThreshold(int seats) {
+		this.parallelThreshold = seats;
+	}
+
+	/**
+	 * Checks the availability of the seat passed in (inclusive) and it's
+	 * neighbors. If it is available, it will then check the seat to it's left,
+	 * then to it's right, and then two over to the left, then two over to the
+	 * right, etc, until there are no available seats or the total number of
+	 * seats requested has been found
+	 * 
+	 * @param row
+	 *            - Row of the seat to check the availability of and the
+	 *            availability of it's neighboring seats
+	 * @param seat
+	 *            - Column of the seat to check
+	 * @param total
+	 *            - The total number of seats needed to be available
+	 * @return The column of the left most seat of the block if the total
+	 *         number of seats requested were found, -1 otherwise
+	 */
+	private int checkNeighbors(int row, int seat, int total) {
+		// The left most seat found so far
+		int first = seat;
+
+		// By default we will be looking at the seat passed in, eg: the middle
+		// seat so the offset and seat count are 0
+		int offset = 0;
+		int count = 0;
+
+		// The multiplier will be used to check left, then right, then 2 left,
+		// etc
+		int multiplier = -1;
+
+		// starting with the seat passed into the method, until the number of
+		// seats found equals the total
+		for (int column = seat; count < total; column += offset) {
+
+			// Break if the seat isn't valid/out of bounds or if it's reserved
+			if (!isValidSeat(row, column) || !freeRuns.isFree(row, column)) {
+				return counted(-1, 0, count + 1);
+			}
+			first = Math.min(first, column);
+
+			// increment the count and calculate the next offset
+			count++;
+			offset = count * multiplier;
+			multiplier *= -1;
+		}
+		return counted(first, 0, count);
+	}
+
+	/**
+	 * Adds search costs to the statistics, if they are being collected
+	 * 
+	 * @param result
+	 *            - Value to pass back
+	 * @param candidates
+	 *            - Number of priority list seats visited
+	 * @param probes
+	 *            - Number of seats probed
+	 * @return The result
+	 */
+	private int counted(int result, int candidates, int probes) {
+		SeatingStats stats = this.stats;
+		if (stats != null) {
+			stats.addCandidates(candidates);
+			stats.addProbes(probes);
+		}
+		return result;
+	}
+
+	/**
+	 * Verifies that the seat number at the specified row and column is a an
+	 * actual seat in the table
+	 * 
+	 * @param row
+	 *            - Row of the seat to check
+	 * @param column
+	 *            - Column of the seat to check
+	 * @return True if the seat is valid, False otherwise
+	 */
+	public boolean isValidSeat(int row, int column) {
+		return (row >= 0 && row < rowCount && column >= 0 && column < seatCount);
+	}
+
+	/**
+	 * Checks whether the seat at the row and column specified has been
+	 * reserved by a group request. Used by Seat views
+	 */
+	boolean isReserved(int row, int column) {
+		lockRow(row);
+		try {
+			return getBit(reserved[row], column);
+		} finally {
+			unlockRow(row);
+		}
+	}
+
+	/**
+	 * Checks whether the seat at the row and column specified has been
+	 * pre-reserved. Used by Seat views
+	 */
+	boolean isPreReserved(int row, int column) {
+		lockRow(row);
+		try {
+			return getBit(preReserved[row], column);
+		} finally {
+			unlockRow(row);
+		}
+	}
+
+	/**
+	 * Checks whether the seat at the row and column specified is held. Used
+	 * by Seat views
+	 */
+	boolean isHeld(int row, int column) {
+		if (holds == null) {
+			return false;
+		}
+		lockRow(row);
+		try {
+			return getBit(held[row], column);
+		} finally {
+			unlockRow(row);
+		}
+	}
+
+	/**
+	 * Sets or clears the reservation of the seat at the row and column
+	 * specified and keeps the free run index in sync. Used by Seat views
+	 */
+	void setReserved(int row, int column, boolean value) {
+		checkJournal();
+		lockRow(row);
+		try {
+			changeSeat(words(reserved, row), row, column, value);
+			appendJournal(value ? SeatingJournal.SET_RESERVED : SeatingJournal.CLEAR_RESERVED, row, column, column);
+		} finally {
+			unlockRow(row);
+		}
+		syncJournal();
+	}
+
+	/**
+	 * Sets or clears the pre-reservation of the seat at the row and column
+	 * specified and keeps the free run index in sync. Used by Seat views
+	 */
+	void setPreReserved(int row, int column, boolean value) {
+		checkJournal();
+		lockRow(row);
+		try {
+			changeSeat(words(preReserved, row), row, column, value);
+			appendJournal(value ? SeatingJournal.SET_PRE_RESERVED : SeatingJournal.CLEAR_PRE_RESERVED, row, column, column);
+		} finally {
+			unlockRow(row);
+		}
+		syncJournal();
+	}
+
+	/**
+	 * Attaches the journal that every change to the seats will be written to.
+	 * Changes are added to the journal while the row is still locked, so the
+	 * journal holds the changes of each row in the order they were made, and
+	 * the public methods only return once their changes are on disk.
+	 * 
+	 * If the journal fails the change that was being written stays made in
+	 * memory but the call throws an IllegalStateException, and from then on
+	 * every change is refused the same way, see SeatingJournal
+	 * 
+	 * @param journal
+	 *            - The journal to write to, or null to stop journaling
+	 */
+	void setJournal(SeatingJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Applies a change read back from the journal, exactly as it was applied
+	 * when it was first made. The change is not written to the journal again
+	 * 
+	 * @param type
+	 *            - Type of change, one of the SeatingJournal record types
+	 * @param row
+	 *            - Row of the seats changed, or the new number of rows when
+	 *            the chart was resized
+	 * @param from
+	 *            - First column changed, or the new number of seats per row
+	 *            when the chart was resized
+	 * @param to
+	 *            - Last column changed
+	 */
+	void replay(int type, int row, int from, int to) {
+		switch (type) {
+		case SeatingJournal.PRE_RESERVE:
+			if (!getBit(reserved[row], from) && !getBit(preReserved[row], from)) {
+				availableSeats.decrementAndGet();
+			}
+			setBits(words(preReserved, row), from, from, true);
+			updateFreeRuns(row, from);
+			break;
+		case SeatingJournal.RESERVE:
+			setBits(words(reserved, row), from, to, true);
+			occupy(row, from, to);
+			availableSeats.addAndGet(from - to - 1);
+			break;
+		case SeatingJournal.RELEASE:
+			releaseSeats(row, from, to);
+			break;
+		case SeatingJournal.RESIZE:
+			// The row and first column hold the new size of the chart
+			resize(row, from);
+			break;
+		default:
+			boolean value = type == SeatingJournal.SET_RESERVED || type == SeatingJournal.SET_PRE_RESERVED;
+			boolean pre = type == SeatingJournal.SET_PRE_RESERVED || type == SeatingJournal.CLEAR_PRE_RESERVED;
+			changeSeat(words(pre ? preReserved : reserved, row), row, from, value);
+			break;
+		}
+	}
+
+	/**
+	 * Adds a change to the journal, if there is one. Called while holding the
+	 * row's lock
+	 */
+	private void appendJournal(int type, int row, int from, int to) {
+		SeatingJournal journal = this.journal;
+		if (journal != null) {
+			journal.append(type, row, from, to);
+		}
+	}
+
+	/**
+	 * Refuses to change the seats once the journal has failed, since the
+	 * change could never be made durable
+	 */
+	private void checkJournal() {
+		SeatingJournal journal = this.journal;
+		if (journal != null && journal.isFailed()) {
+			throw new IllegalStateException("The seating journal has failed, the seating chart no longer accepts changes");
+		}
+	}
+
+	/**
+	 * Waits until every change added to the journal so far is on disk. Many
+	 * threads waiting at once share the same write
+	 */
+	private void syncJournal() {
+		SeatingJournal journal = this.journal;
+		if (journal != null) {
+			try {
+				journal.sync();
+			} catch (IOException e) {
+				throw new IllegalStateException("Failed to write to the seating journal", e);
+			}
+		}
+	}
+
+	/**
+	 * Locks every row, in order, so that nothing in the seating chart can
+	 * change until unlockAllRows is called
+	 */
+	void lockAllRows() {
+		for (int row = 0; row < rowCount; row++) {
+			lockRow(row);
+		}
+	}
+
+	/**
+	 * Unlocks every row locked by lockAllRows
+	 */
+	void unlockAllRows() {
+		for (int row = rowCount - 1; row >= 0; row--) {
+			unlockRow(row);
+		}
+	}
+
+	/**
+	 * Locks the row specified if the seating chart is concurrent. Every read
+	 * or write of a row's seats happens while holding it's lock
+	 */
+	private void lockRow(int row) {
+		if (rowLocks != null) {
+			rowLocks[row].lock();
+		}
+	}
+
+	/**
+	 * Unlocks the row specified if the seating chart is concurrent
+	 */
+	private void unlockRow(int row) {
+		if (rowLocks != null) {
+			rowLocks[row].unlock();
+		}
+	}
+
+	/**
+	 * Reads the bit for the column specified from a row's words. A row
+	 * without words has no bits set
+	 */
+	private static boolean getBit(long[] words, int column) {
+		return words != null && (words[column >>> 6] & (1L << column)) != 0;
+	}
+
+	/**
+	 * Get the words of the row specified, creating them if the row has not
+	 * been used yet
+	 */
+	private long[] words(long[][] rows, int row) {
+		long[] words = rows[row];
+		if (words == null) {
+			words = new long[(seatCount + 63) >>> 6];
+			rows[row] = words;
+		}
+		return words;
+	}
+
+	/**
+	 * Sets or clears the bits for the columns specified (inclusive) in a row's
+	 * words
+	 */
+	private static void setBits(long[] words, int from, int to, boolean value) {
+		for (int column = from; column <= to; column++) {
+			if (value) {
+				words[column >>> 6] |= 1L << column;
+			} else {
+				words[column >>> 6] &= ~(1L << column);
+			}
+		}
+	}
+
+	/**
+	 * Sets or clears one of the reservation bits of a seat, keeping the search
+	 * structures and the number of available seats in sync. Called while
+	 * holding the row's lock
+	 */
+	private void changeSeat(long[] words, int row, int column, boolean value) {
+		boolean wasTaken = getBit(reserved[row], column) || getBit(preReserved[row], column);
+		setBits(words, column, column, value);
+		updateFreeRuns(row, column);
+		boolean taken = getBit(reserved[row], column) || getBit(preReserved[row], column);
+		if (taken != wasTaken) {
+			availableSeats.addAndGet(taken ? -1 : 1);
+		}
+		if (!taken) {
+			clearHeld(row, column, column);
+		}
+	}
+
+	/**
+	 * Clears every reservation and pre-reservation in the row between the
+	 * columns specified (inclusive) and puts the seats back into the search
+	 * structures. Called while holding the row's lock
+	 * 
+	 * @return Number of seats that were taken and are now free
+	 */
+	private int releaseSeats(int row, int from, int to) {
+		int released = 0;
+		for (int column = from; column <= to; column++) {
+			if (getBit(reserved[row], column) || getBit(preReserved[row], column)) {
+				released++;
+			}
+		}
+		if (released > 0) {
+			setBits(words(reserved, row), from, to, false);
+			setBits(words(preReserved, row), from, to, false);
+			clearHeld(row, from, to);
+			vacate(row, from, to);
+			availableSeats.addAndGet(released);
+		}
+		return released;
+	}
+
+	/**
+	 * Clears the held bits of the seats in the row between the columns
+	 * specified (inclusive), when they are confirmed or no longer taken.
+	 * Called while holding the row's lock
+	 */
+	private void clearHeld(int row, int from, int to) {
+		long[] words = held != null ? held[row] : null;
+		if (words == null) {
+			return;
+		}
+		int cleared = 0;
+		for (int column = from; column <= to; column++) {
+			if (getBit(words, column)) {
+				cleared++;
+			}
+		}
+		if (cleared > 0) {
+			setBits(words, from, to, false);
+			heldSeats.addAndGet(-cleared);
+		}
+	}
+
+	/**
+	 * Marks the seat free or taken in the search structures depending on it's
+	 * reservation bits
+	 */
+	private void updateFreeRuns(int row, int column) {
+		if (getBit(reserved[row], column) || getBit(preReserved[row], column)) {
+			occupy(row, column, column);
+		} else {
+			vacate(row, column, column);
+		}
+	}
+
+	/**
+	 * Removes the seats in the row between the columns specified (inclusive)
+	 * from the search structures
+	 */
+	private void occupy(int row, int from, int to) {
+		freeRuns.occupy(row, from, to);
+		if (priorityList != null) {
+			for (int column = from; column <= to; column++) {
+				priorityList.take(row * seatCount + column);
+			}
+		}
+	}
+
+	/**
+	 * Puts the seats in the row between the columns specified (inclusive) back
+	 * into the search structures
+	 */
+	private void vacate(int row, int from, int to) {
+		freeRuns.vacate(row, from, to);
+		if (priorityList != null) {
+			for (int column = from; column <= to; column++) {
+				priorityList.release(row * seatCount + column);
+			}
+		}
+	}
+
+	/**
+	 * Given a row and column value, calculate the distance from the best seat
+	 * in the house which is specified per requirements as the first/top row,
+	 * center seat - this is calculated using Manhattan distance unless another
+	 * SeatScorer has been configured
+	 * 
+	 * @param r
+	 *            - The row number of the seat checking the distance for
+	 * @param c
+	 *            - The column number of the seat we're checking the distance
+	 *            for
+	 * @return The score of the seat relative to the row 1, center seat
+	 */
+	private int calculateDistance(int r, int c) {
+		return scorer.score(r, c, rowCount, seatCount);
+	}
+
+	/**
+	 * This method will print the seating table with 'X' values representing the
+	 * pre-reserved seats in line 1 of the input and 'O' values representing the
+	 * algorithmically selected seats based on the calculated "best" location
+	 * available
+	 */
+	public void print() {
 		for (int row = 0; row < rowCount; row++) {
 			for (int column = 0; column < seatCount; column++) {
-				Output.getInstance().print(" " + seatingChart[row][column].getSeatStatusSymbol() + " ");
+				Output.getInstance().print(' ');
+				Output.getInstance().print(Seat.getSeatStatusSymbol(isPreReserved(row, column), isReserved(row, column)));
+				Output.getInstance().print(' ');
 			}
-			Output.getInstance().print("\n");
+			Output.getInstance().print('\n');
 		}
 
 	}
+
+	/**
+	 * Searches a range of the priority list for a placement, splitting the
+	 * range in half until it is small enough to walk. Ranges that start after
+	 * a placement that has already been found are skipped
+	 */
+	private class ScanTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int total;
+		private final int from;
+		private final int to;
+		private final AtomicInteger found;
+
+		ScanTask(int total, int from, int to, AtomicInteger found) {
+			this.total = total;
+			this.from = from;
+			this.to = to;
+			this.found = found;
+		}
+
+		@Override
+		protected void compute() {
+			if (from >= found.get()) {
+				return;
+			}
+			if (to - from <= SCAN_CHUNK) {
+				int position = scanPriorityList(total, priorityList.next(from - 1), Math.min(to, found.get()));
+				int current = found.get();
+				while (position >= 0 && position < current && !found.compareAndSet(current, position)) {
+					current = found.get();
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ScanTask(total, from, middle, found), new ScanTask(total, middle, to, found));
+			}
+		}
+	}
 }
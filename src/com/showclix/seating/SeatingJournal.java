@@ -0,0 +1,435 @@
+package com.showclix.seating;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The SeatingJournal is an append only log of every change made to a seating
+ * chart, so that the chart can be rebuilt after the JVM stops without losing
+ * any reservation that was handed out. Each change is a fixed size record of
+ * it's type, row and columns.
+ * 
+ * Changes are added to an in memory buffer while the chart still holds the
+ * row's lock, and a request only returns once the buffer has been forced to
+ * disk. Forcing is done by whichever waiting thread gets there first, and it
+ * writes everything buffered up to that point, so every thread that was
+ * waiting at the same time shares the same force (group commit).
+ * 
+ * A journal can optionally be paired with a snapshot file. A checkpoint saves
+ * the whole chart to the snapshot and starts the journal over, which keeps
+ * replay short. Both files carry an epoch number that is bumped on every
+ * checkpoint, so a crash part way through a checkpoint never applies the same
+ * changes twice.
+ * 
+ * Once a write or force fails the journal is failed for good: it is not known
+ * how much of the failed write reached the disk, so nothing more is written,
+ * sync throws, and the seating chart it is attached to refuses every further
+ * change. The chart is brought back by recovering it from the journal, which
+ * drops a record that was only partly written.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingJournal implements Closeable {
+
+	// Record types
+	static final int PRE_RESERVE = 1;
+	static final int RESERVE = 2;
+	static final int SET_RESERVED = 3;
+	static final int CLEAR_RESERVED = 4;
+	static final int SET_PRE_RESERVED = 5;
+	static final int CLEAR_PRE_RESERVED = 6;
+	static final int RELEASE = 7;
+	static final int RESIZE = 8;
+
+	// The journal starts with "SJNL", the version and the epoch
+	private static final int MAGIC = 0x534A4E4C;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 16;
+
+	// Every record is it's type, row, first column and last column. A resize
+	// record holds the new number of rows and seats per row instead
+	private static final int RECORD_SIZE = 16;
+
+	// Initial size of the buffers records are collected in
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Path of the journal and of the snapshot it is paired with, if any
+	private final String journalPath;
+	private final String snapshotPath;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+
+	// Bumped every time a checkpoint is taken
+	private long epoch;
+
+	// Records are added to 'pending' while holding this object's monitor. The
+	// thread forcing the journal swaps the buffers and writes out 'writing'
+	private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+	private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+
+	// Number of records added, and the number known to be on disk
+	private long appended = 0;
+	private volatile long durable = 0;
+
+	// Held by the thread that is writing and forcing the journal
+	private final ReentrantLock forceLock = new ReentrantLock();
+
+	// Number of times the journal has been forced to disk
+	private volatile long forces = 0;
+
+	// Why writing to the journal failed, null while it is working
+	private volatile IOException failure = null;
+
+	/**
+	 * Creates a journal that is not paired with a snapshot. Nothing is read or
+	 * written until recover is called
+	 * 
+	 * @param journalPath
+	 *            - Path of the journal file
+	 */
+	public SeatingJournal(String journalPath) {
+		this(journalPath, null);
+	}
+
+	/**
+	 * Creates a journal that is paired with a snapshot file. Nothing is read or
+	 * written until recover is called
+	 * 
+	 * @param journalPath
+	 *            - Path of the journal file
+	 * @param snapshotPath
+	 *            - Path of the snapshot file, or null for no snapshot
+	 */
+	public SeatingJournal(String journalPath, String snapshotPath) {
+		this.journalPath = journalPath;
+		this.snapshotPath = snapshotPath;
+	}
+
+	/**
+	 * Rebuilds the seating chart from the snapshot, if there is one, and the
+	 * changes in the journal, and then attaches the journal to the chart so
+	 * that every change made from now on is written to it. If neither file
+	 * exists yet a new, empty chart is created with the size specified.
+	 * 
+	 * A record that was only partly written when the JVM stopped is dropped
+	 * from the end of the journal. A complete record that does not fit the
+	 * chart is reported as an IOException and the journal is left untouched.
+	 * 
+	 * @param rowCount
+	 *            - Number of rows of the chart if there is nothing to recover
+	 * @param seatCount
+	 *            - Number of seats per row if there is nothing to recover
+	 * @return The recovered seating chart
+	 * @throws IOException
+	 */
+	public Seating recover(int rowCount, int seatCount) throws IOException {
+		return recover(rowCount, seatCount, null, false);
+	}
+
+	/**
+	 * Rebuilds the seating chart the same way as recover(int, int), creating
+	 * a new chart with the search mode specified if there is nothing to
+	 * recover. A chart restored from a snapshot keeps the search mode it was
+	 * saved with
+	 * 
+	 * @param rowCount
+	 *            - Number of rows of the chart if there is nothing to recover
+	 * @param seatCount
+	 *            - Number of seats per row if there is nothing to recover
+	 * @param searchMode
+	 *            - How a new chart searches for placements, or null to use
+	 *            the configured search mode
+	 * @param concurrent
+	 *            - True if a new chart will be shared between threads,
+	 *            ignored if searchMode is null
+	 * @return The recovered seating chart
+	 * @throws IOException
+	 */
+	public Seating recover(int rowCount, int seatCount, SearchMode searchMode, boolean concurrent) throws IOException {
+		Seating seating = null;
+		long snapshotEpoch = 0;
+		if (snapshotPath != null && new File(snapshotPath).exists()) {
+			try (RandomAccessFile snapshot = new RandomAccessFile(snapshotPath, "r"); FileChannel snapshotChannel = snapshot.getChannel()) {
+				MappedByteBuffer buffer = snapshotChannel.map(FileChannel.MapMode.READ_ONLY, 0, snapshotChannel.size());
+				seating = Seating.readSnapshot(buffer);
+				if (buffer.remaining() >= 8) {
+					snapshotEpoch = buffer.getLong();
+				}
+			}
+		}
+		if (seating == null) {
+			seating = searchMode == null ? new Seating(rowCount, seatCount) : new Seating(rowCount, seatCount, searchMode, concurrent);
+		}
+
+		file = new RandomAccessFile(journalPath, "rw");
+		channel = file.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		if (channel.size() < HEADER_SIZE) {
+			reset(snapshotEpoch);
+		} else {
+			readFully(header, 0);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException("Not a seating journal: " + journalPath);
+			} else if (header.getInt(4) != VERSION) {
+				throw new IOException("Unsupported seating journal version " + header.getInt(4) + ": " + journalPath);
+			}
+			long journalEpoch = header.getLong(8);
+			if (journalEpoch == snapshotEpoch) {
+				channel.position(replay(seating));
+				channel.truncate(channel.position());
+				epoch = journalEpoch;
+			} else if (journalEpoch < snapshotEpoch) {
+				// The last checkpoint saved the snapshot but stopped before the
+				// journal was started over, so everything in it is already in
+				// the snapshot
+				reset(snapshotEpoch);
+			} else {
+				throw new IOException("Seating journal " + journalPath + " is newer than it's snapshot");
+			}
+		}
+
+		seating.setJournal(this);
+		return seating;
+	}
+
+	/**
+	 * Applies every complete record in the journal to the seating chart. Only
+	 * a record cut off at the end of the file can be from a write that never
+	 * finished, a complete record that does not fit the chart means the
+	 * journal is corrupt or belongs to another chart
+	 * 
+	 * @return Position just after the last complete record
+	 * @throws IOException
+	 *             If a complete record can not be applied to the chart
+	 */
+	private long replay(Seating seating) throws IOException {
+		ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * 4096);
+		long position = HEADER_SIZE;
+		long size = channel.size();
+		while (position + RECORD_SIZE <= size) {
+			records.clear();
+			records.limit((int) Math.min(records.capacity(), (size - position) / RECORD_SIZE * RECORD_SIZE));
+			readFully(records, position);
+			records.flip();
+			while (records.hasRemaining()) {
+				int type = records.getInt();
+				int row = records.getInt();
+				int from = records.getInt();
+				int to = records.getInt();
+				if (!isValidRecord(seating, type, row, from, to)) {
+					throw new IOException("Seating journal " + journalPath + " has an invalid record at byte " + position);
+				}
+				seating.replay(type, row, from, to);
+				position += RECORD_SIZE;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Checks whether a record read back from the journal is a change that can
+	 * be applied to the seating chart as it is at that point of the replay
+	 */
+	private static boolean isValidRecord(Seating seating, int type, int row, int from, int to) {
+		if (type == RESIZE) {
+			return row >= seating.getRowCount() && from >= seating.getSeatCount() && to == 0;
+		}
+		return type >= PRE_RESERVE && type <= RELEASE && seating.isValidSeat(row, from) && seating.isValidSeat(row, to) && to >= from;
+	}
+
+	/**
+	 * Adds a change to the journal. The change is not on disk until sync
+	 * returns. Nothing is added once the journal has failed
+	 */
+	synchronized void append(int type, int row, int from, int to) {
+		if (failure != null) {
+			return;
+		}
+		if (pending.remaining() < RECORD_SIZE) {
+			ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+			pending.flip();
+			larger.put(pending);
+			pending = larger;
+		}
+		pending.putInt(type).putInt(row).putInt(from).putInt(to);
+		appended++;
+	}
+
+	/**
+	 * Waits until every change added to the journal before this call is on
+	 * disk. If another thread is already forcing the journal this waits for
+	 * it, and then either returns, if that force covered our changes, or
+	 * forces everything that was added in the meantime in one go.
+	 * 
+	 * @throws IOException
+	 *             If the changes could not be written, now or by an earlier
+	 *             sync, after which the journal stays failed
+	 */
+	public void sync() throws IOException {
+		long target;
+		synchronized (this) {
+			target = appended;
+		}
+		if (durable >= target) {
+			return;
+		}
+
+		forceLock.lock();
+		try {
+			checkFailure();
+			if (durable >= target) {
+				return;
+			}
+			long upTo;
+			synchronized (this) {
+				ByteBuffer swap = pending;
+				pending = writing;
+				writing = swap;
+				upTo = appended;
+			}
+			try {
+				writing.flip();
+				while (writing.hasRemaining()) {
+					channel.write(writing);
+				}
+				channel.force(false);
+			} catch (IOException e) {
+				failure = e;
+				throw e;
+			} finally {
+				// Both buffers are empty or collecting again, whether or not
+				// the write made it to disk
+				writing.clear();
+			}
+			forces++;
+			durable = upTo;
+		} finally {
+			forceLock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether writing to the journal has failed. A failed journal
+	 * writes nothing more and the chart it is attached to refuses every
+	 * change
+	 * 
+	 * @return True if the journal has failed
+	 */
+	public boolean isFailed() {
+		return failure != null;
+	}
+
+	/**
+	 * Throws if writing to the journal has failed before
+	 */
+	void checkFailure() throws IOException {
+		IOException failure = this.failure;
+		if (failure != null) {
+			throw new IOException("The seating journal " + journalPath + " failed earlier", failure);
+		}
+	}
+
+	/**
+	 * Saves the whole seating chart to the snapshot file and starts the
+	 * journal over. The chart can not change while the checkpoint is taken.
+	 * The snapshot is written to a temporary file first and then moved over
+	 * the old snapshot, so there is always a complete snapshot on disk.
+	 * 
+	 * @param seating
+	 *            - The seating chart this journal is attached to
+	 * @throws IOException
+	 */
+	public void checkpoint(Seating seating) throws IOException {
+		if (snapshotPath == null) {
+			throw new IllegalStateException("The seating journal " + journalPath + " has no snapshot file");
+		}
+
+		seating.lockAllRows();
+		try {
+			sync();
+			long next = epoch + 1;
+			File temporary = new File(snapshotPath + ".tmp");
+			try (RandomAccessFile snapshot = new RandomAccessFile(temporary, "rw"); FileChannel snapshotChannel = snapshot.getChannel()) {
+				int size = seating.getSnapshotSize() + 8;
+				snapshotChannel.truncate(size);
+				MappedByteBuffer buffer = snapshotChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				seating.writeSnapshot(buffer);
+				buffer.putLong(next);
+				buffer.force();
+			}
+			Files.move(temporary.toPath(), new File(snapshotPath).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			reset(next);
+		} finally {
+			seating.unlockAllRows();
+		}
+	}
+
+	/**
+	 * Empties the journal and writes a new header for the epoch specified
+	 */
+	private void reset(long epoch) throws IOException {
+		forceLock.lock();
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putLong(epoch).flip();
+			channel.truncate(0);
+			channel.position(0);
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			channel.force(true);
+			this.epoch = epoch;
+			synchronized (this) {
+				pending.clear();
+				durable = appended;
+			}
+		} finally {
+			forceLock.unlock();
+		}
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of seating journal " + journalPath);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of times the journal has been forced to disk. Comparing
+	 * this to the number of requests shows how well requests are being
+	 * grouped
+	 * 
+	 * @return Number of forces
+	 */
+	public long getForces() {
+		return forces;
+	}
+
+	/**
+	 * Forces anything still buffered to disk and closes the journal. The
+	 * seating chart it was attached to must not be changed afterwards
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			try {
+				sync();
+			} finally {
+				channel.close();
+				file.close();
+			}
+		}
+	}
+}
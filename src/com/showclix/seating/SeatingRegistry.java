@@ -0,0 +1,312 @@
+package com.showclix.seating;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * The SeatingRegistry holds the seating charts of many events at once, keyed
+ * by an event id. Charts are kept in memory until the estimated size of every
+ * chart in memory goes over the memory budget, at which point the least
+ * recently used charts are evicted. An evicted chart is kept as a compact
+ * snapshot (two bits per seat) and is restored the next time it is asked for,
+ * so callers never need to know whether a chart was evicted.
+ * 
+ * A chart returned by get should not be held on to between calls, since
+ * another caller may evict it and restore it as a new object, and changes made
+ * to the evicted copy would be lost. Callers that use a chart while other
+ * threads use the registry should acquire it instead, which pins the chart in
+ * memory until it is released.
+ * 
+ * A chart with seats on hold is kept in memory the same as a pinned chart,
+ * since a snapshot would keep the held seats as reservations that never
+ * expire and the SeatHold objects would no longer belong to the chart.
+ * 
+ * LAZY charts grow as their rows are used, so the size of a chart is estimated
+ * again every time it is asked for and when it is released.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingRegistry {
+
+	// Charts in memory, from least to most recently used
+	private final LinkedHashMap<String, Seating> charts = new LinkedHashMap<String, Seating>(16, 0.75f, true);
+
+	// Estimated size of each chart in memory
+	private final Map<String, Long> sizes = new HashMap<String, Long>();
+
+	// Number of callers using each pinned chart, pinned charts are never
+	// evicted
+	private final Map<String, Integer> pins = new HashMap<String, Integer>();
+
+	// Snapshots of the charts that have been evicted
+	private final Map<String, byte[]> evicted = new HashMap<String, byte[]>();
+
+	// Maximum estimated number of bytes of charts to keep in memory
+	private final long memoryBudget;
+
+	// Estimated number of bytes of charts currently in memory
+	private long memoryUsed = 0;
+
+	// Statistics
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * Creates a registry with the memory budget from the configuration file
+	 */
+	public SeatingRegistry() {
+		this(Settings.getInstance().getInt("seating.registry.memoryBudget", 64 * 1024 * 1024));
+	}
+
+	/**
+	 * Creates a registry with the memory budget specified
+	 * 
+	 * @param memoryBudget
+	 *            - Maximum estimated number of bytes of charts to keep in
+	 *            memory. The most recently used chart is always kept, even if
+	 *            it is over the budget on it's own
+	 */
+	public SeatingRegistry(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Creates a new seating chart for an event using the default search mode
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @param rowCount
+	 *            - Number of rows in the seating chart
+	 * @param seatCount
+	 *            - Number of seats in each row
+	 * @return The new seating chart
+	 */
+	public Seating create(String event, int rowCount, int seatCount) {
+		Seating seating = new Seating(rowCount, seatCount);
+		put(event, seating);
+		return seating;
+	}
+
+	/**
+	 * Adds a seating chart to the registry, replacing any chart already held
+	 * for the event
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @param seating
+	 *            - Seating chart of the event
+	 */
+	public synchronized void put(String event, Seating seating) {
+		remove(event);
+		charts.put(event, seating);
+		long size = seating.getMemoryEstimate();
+		sizes.put(event, size);
+		memoryUsed += size;
+		evict();
+	}
+
+	/**
+	 * Get the seating chart for an event, restoring it if it has been evicted
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @return The seating chart, or null if the registry has no chart for the
+	 *         event
+	 * @throws IOException
+	 *             If the evicted chart could not be restored
+	 */
+	public synchronized Seating get(String event) throws IOException {
+		Seating seating = charts.get(event);
+		if (seating != null) {
+			hits++;
+			resize(event, seating);
+			return seating;
+		}
+
+		byte[] snapshot = evicted.get(event);
+		if (snapshot == null) {
+			return null;
+		}
+		misses++;
+		seating = Seating.fromBytes(snapshot);
+		evicted.remove(event);
+		charts.put(event, seating);
+		long size = seating.getMemoryEstimate();
+		sizes.put(event, size);
+		memoryUsed += size;
+		evict();
+		return seating;
+	}
+
+	/**
+	 * Get the seating chart for an event and pin it in memory, so that it is
+	 * not evicted while the caller uses it. Every chart acquired must be
+	 * released
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @return The seating chart, or null if the registry has no chart for the
+	 *         event
+	 * @throws IOException
+	 *             If the evicted chart could not be restored
+	 */
+	public synchronized Seating acquire(String event) throws IOException {
+		Seating seating = get(event);
+		if (seating != null) {
+			Integer count = pins.get(event);
+			pins.put(event, count == null ? 1 : count + 1);
+		}
+		return seating;
+	}
+
+	/**
+	 * Releases a chart acquired from the registry, allowing it to be evicted
+	 * again once no other caller is using it. The size of the chart is
+	 * estimated again, since it may have grown while it was in use
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 */
+	public synchronized void release(String event) {
+		Integer count = pins.get(event);
+		if (count == null) {
+			return;
+		} else if (count > 1) {
+			pins.put(event, count - 1);
+		} else {
+			pins.remove(event);
+		}
+		Seating seating = charts.get(event);
+		if (seating != null) {
+			resize(event, seating);
+		}
+	}
+
+	/**
+	 * Checks whether the chart for an event is pinned in memory by a caller
+	 * that acquired it
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @return True if the chart is pinned
+	 */
+	public synchronized boolean isPinned(String event) {
+		return pins.containsKey(event);
+	}
+
+	/**
+	 * Removes the seating chart for an event from the registry
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @return True if the registry held a chart for the event
+	 */
+	public synchronized boolean remove(String event) {
+		pins.remove(event);
+		if (charts.remove(event) != null) {
+			memoryUsed -= sizes.remove(event);
+			return true;
+		}
+		return evicted.remove(event) != null;
+	}
+
+	/**
+	 * Checks whether the registry holds a chart for an event, in memory or
+	 * evicted
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @return True if the registry holds a chart for the event
+	 */
+	public synchronized boolean contains(String event) {
+		return charts.containsKey(event) || evicted.containsKey(event);
+	}
+
+	/**
+	 * Checks whether the chart for an event is currently held in memory
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @return True if the chart is in memory, false if it has been evicted or
+	 *         does not exist
+	 */
+	public synchronized boolean isLoaded(String event) {
+		return charts.containsKey(event);
+	}
+
+	/**
+	 * Estimates the size of a chart in memory again, evicting other charts if
+	 * it has grown past the memory budget
+	 * 
+	 * @param event
+	 *            - Id of the event
+	 * @param seating
+	 *            - Seating chart of the event, which must be in memory
+	 */
+	private void resize(String event, Seating seating) {
+		long size = seating.getMemoryEstimate();
+		long previous = sizes.put(event, size);
+		if (size != previous) {
+			memoryUsed += size - previous;
+			evict();
+		}
+	}
+
+	/**
+	 * Evicts the least recently used charts that are not pinned and have no
+	 * seats on hold until the charts in memory fit in the memory budget. The
+	 * most recently used chart is never evicted
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Seating>> entries = charts.entrySet().iterator();
+		for (int remaining = charts.size(); memoryUsed > memoryBudget && remaining > 1; remaining--) {
+			Map.Entry<String, Seating> eldest = entries.next();
+			if (pins.containsKey(eldest.getKey()) || eldest.getValue().getHeldSeats() > 0) {
+				continue;
+			}
+			evicted.put(eldest.getKey(), eldest.getValue().toBytes());
+			memoryUsed -= sizes.remove(eldest.getKey());
+			entries.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Prints the cache statistics of the registry
+	 */
+	public synchronized void printStatistics() {
+		Output.getInstance().println("Charts in memory: " + charts.size() + " (" + memoryUsed + " of " + memoryBudget + " bytes)");
+		Output.getInstance().println("Charts evicted:   " + evicted.size());
+		Output.getInstance().println("Hits:             " + hits);
+		Output.getInstance().println("Misses:           " + misses);
+		Output.getInstance().println("Evictions:        " + evictions);
+	}
+}
@@ -0,0 +1,60 @@
+package com.showclix.seating;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saves seating charts to files and restores them again. The file holds the
+ * same compact snapshot as Seating.writeSnapshot, which is written and read
+ * straight through a memory mapped buffer so that large charts are not copied
+ * through the heap. Restoring a chart rebuilds it's search structures from
+ * the packed seat bits a row at a time, so nothing needs to be replayed.
+ * Only the seats are saved, see Seating.readSnapshot for what a restored
+ * chart leaves out.
+ * 
+ * @version 1.0
+ * 
+ */
+public final class SeatingSnapshot {
+
+	private SeatingSnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot of the seating chart to the file specified, replacing
+	 * anything already in the file
+	 * 
+	 * @param seating
+	 *            - The seating chart to save
+	 * @param filePath
+	 *            - Path of the snapshot file
+	 * @throws IOException
+	 */
+	public static void save(Seating seating, String filePath) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(filePath, "rw"); FileChannel channel = file.getChannel()) {
+			int size = seating.getSnapshotSize();
+			channel.truncate(size);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			seating.writeSnapshot(buffer);
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Restores a seating chart from a snapshot file written by save
+	 * 
+	 * @param filePath
+	 *            - Path of the snapshot file
+	 * @return The restored seating chart
+	 * @throws IOException
+	 *             If the file can not be read or is not a seating chart
+	 *             snapshot
+	 */
+	public static Seating load(String filePath) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(filePath, "r"); FileChannel channel = file.getChannel()) {
+			return Seating.readSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package com.showclix.seating;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.showclix.seating.util.Output;
+
+/**
+ * SeatingStats collects the cost of group requests on a seating chart: a
+ * latency histogram, how many candidates the search looked at, how many
+ * seats it probed, and how many groups of each size were placed or turned
+ * away. A chart only collects statistics once they are attached with
+ * Seating.setStatistics, so a chart without them only pays for a null check.
+ * 
+ * What counts as a candidate depends on the search mode. When scanning the
+ * priority list it is every free seat visited and the probes are the seats
+ * checkNeighbors looks at. When using the index it is every row the search
+ * looked at and the probes are the rows whose best block had to be
+ * recalculated.
+ * 
+ * The statistics can be printed through Output or published over JMX.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingStats implements SeatingStatsMBean {
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	private final AtomicLong candidates = new AtomicLong();
+	private final AtomicLong probes = new AtomicLong();
+
+	// Counts indexed by group size
+	private final AtomicLongArray placed;
+	private final AtomicLongArray notAvailable;
+
+	// Name the statistics are registered under over JMX, null if they are
+	// not registered
+	private ObjectName objectName;
+
+	/**
+	 * Creates empty statistics for charts that take groups of up to the size
+	 * specified
+	 * 
+	 * @param maxRequests
+	 *            - Largest group size that can be requested
+	 */
+	public SeatingStats(int maxRequests) {
+		this.placed = new AtomicLongArray(maxRequests + 1);
+		this.notAvailable = new AtomicLongArray(maxRequests + 1);
+	}
+
+	/**
+	 * Counts a group request
+	 * 
+	 * @param total
+	 *            - Size of the group
+	 * @param success
+	 *            - True if the group was placed
+	 * @param nanos
+	 *            - How long the request took in nanoseconds
+	 */
+	void record(int total, boolean success, long nanos) {
+		latency.record(nanos);
+		if (total >= 0 && total < placed.length()) {
+			(success ? placed : notAvailable).incrementAndGet(total);
+		}
+	}
+
+	void addCandidates(int count) {
+		candidates.addAndGet(count);
+	}
+
+	void addProbes(int count) {
+		probes.addAndGet(count);
+	}
+
+	@Override
+	public long getRequests() {
+		return getPlaced() + getNotAvailable();
+	}
+
+	@Override
+	public long getPlaced() {
+		return sum(placed);
+	}
+
+	@Override
+	public long getNotAvailable() {
+		return sum(notAvailable);
+	}
+
+	@Override
+	public long[] getPlacedBySize() {
+		return toArray(placed);
+	}
+
+	@Override
+	public long[] getNotAvailableBySize() {
+		return toArray(notAvailable);
+	}
+
+	@Override
+	public long getLatencyP50Nanos() {
+		return latency.getPercentile(0.5);
+	}
+
+	@Override
+	public long getLatencyP99Nanos() {
+		return latency.getPercentile(0.99);
+	}
+
+	@Override
+	public long getLatencyP999Nanos() {
+		return latency.getPercentile(0.999);
+	}
+
+	@Override
+	public long getCandidatesVisited() {
+		return candidates.get();
+	}
+
+	@Override
+	public long getSeatsProbed() {
+		return probes.get();
+	}
+
+	/**
+	 * Clears every statistic
+	 */
+	@Override
+	public void reset() {
+		latency.reset();
+		candidates.set(0);
+		probes.set(0);
+		for (int i = 0; i < placed.length(); i++) {
+			placed.set(i, 0);
+			notAvailable.set(i, 0);
+		}
+	}
+
+	/**
+	 * Publishes the statistics over JMX as
+	 * com.showclix.seating:type=SeatingStats,name=[name]
+	 * 
+	 * @param name
+	 *            - Name that tells this chart's statistics apart from others
+	 * @throws JMException
+	 *             If the statistics could not be registered
+	 */
+	public synchronized void register(String name) throws JMException {
+		unregister();
+		ObjectName objectName = new ObjectName("com.showclix.seating:type=SeatingStats,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.objectName = objectName;
+	}
+
+	/**
+	 * Removes the statistics from JMX if they were registered
+	 * 
+	 * @throws JMException
+	 */
+	public synchronized void unregister() throws JMException {
+		if (objectName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Prints the statistics through Output
+	 */
+	public void print() {
+		print(Output.getInstance());
+	}
+
+	/**
+	 * Prints the statistics to the output specified
+	 * 
+	 * @param output
+	 *            - Output to print to
+	 */
+	public void print(Output output) {
+		output.println("Requests:           " + getRequests() + " (" + getPlaced() + " placed, " + getNotAvailable() + " not available)");
+		output.println("Latency p50:        " + format(getLatencyP50Nanos()));
+		output.println("Latency p99:        " + format(getLatencyP99Nanos()));
+		output.println("Latency p99.9:      " + format(getLatencyP999Nanos()));
+		output.println("Candidates visited: " + getCandidatesVisited());
+		output.println("Seats probed:       " + getSeatsProbed());
+		for (int total = 1; total < placed.length(); total++) {
+			if (placed.get(total) > 0 || notAvailable.get(total) > 0) {
+				output.println("Group of " + total + ":" + (total < 10 ? "         " : "        ") + placed.get(total) + " placed, " + notAvailable.get(total) + " not available");
+			}
+		}
+	}
+
+	private static String format(long nanos) {
+		return String.format("%.1f us", nanos / 1000.0);
+	}
+
+	private static long sum(AtomicLongArray counts) {
+		long sum = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			sum += counts.get(i);
+		}
+		return sum;
+	}
+
+	private static long[] toArray(AtomicLongArray counts) {
+		long[] array = new long[counts.length()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = counts.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,32 @@
+package com.showclix.seating;
+
+/**
+ * The management interface SeatingStats is published through over JMX
+ * 
+ * @version 1.0
+ * 
+ */
+public interface SeatingStatsMBean {
+
+	long getRequests();
+
+	long getPlaced();
+
+	long getNotAvailable();
+
+	long[] getPlacedBySize();
+
+	long[] getNotAvailableBySize();
+
+	long getLatencyP50Nanos();
+
+	long getLatencyP99Nanos();
+
+	long getLatencyP999Nanos();
+
+	long getCandidatesVisited();
+
+	long getSeatsProbed();
+
+	void reset();
+}
@@ -0,0 +1,259 @@
+package com.showclix.seating.util;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * The InputParser reads the seating input format (a line of pre-reservations
+ * such as "R1C4 R3C9" followed by one group size per line) straight from the
+ * bytes of a channel. Seat labels and group sizes are decoded into ints as
+ * the bytes go by, so no Strings, arrays or regular expressions are created
+ * per line. The same buffer is reused for the whole input, which makes it
+ * suitable for replaying very large request logs.
+ * 
+ * The parser follows the same rules as the original String based parsing:
+ * the row of a seat label is made up of the digits before the 'C' and the
+ * column of the digits after it, and a group size is made up of every digit
+ * on the line. A number too large for an int is read as Integer.MAX_VALUE,
+ * which is never a valid seat or group size, so the line fails instead of
+ * wrapping around to a small number.
+ * 
+ * @version 1.0
+ * 
+ */
+public final class InputParser implements Closeable {
+
+	// Size of the buffer bytes are read into
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ReadableByteChannel channel;
+
+	// Bytes read from the channel, the unread bytes are between position and
+	// limit
+	private final byte[] bytes = new byte[BUFFER_SIZE];
+	private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+	private int position = 0;
+	private int limit = 0;
+
+	// Set once the channel has no more bytes
+	private boolean endOfInput = false;
+
+	// Set once every byte of the current line has been read. Starts out set
+	// since no line has been started yet
+	private boolean endOfLine = true;
+
+	// Row and column of the last seat label read, starting at 1
+	private int row;
+	private int column;
+
+	/**
+	 * Creates a parser that reads from the channel specified
+	 * 
+	 * @param channel
+	 *            - Channel to read input from
+	 */
+	public InputParser(ReadableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Creates a parser that reads from the stream specified, such as System.in
+	 * 
+	 * @param in
+	 *            - Stream to read input from
+	 */
+	public InputParser(InputStream in) {
+		this(Channels.newChannel(in));
+	}
+
+	/**
+	 * Creates a parser that reads the file specified through it's FileChannel
+	 * 
+	 * @param filePath
+	 *            - Path of the file to read
+	 * @return The parser
+	 * @throws IOException
+	 */
+	public static InputParser open(String filePath) throws IOException {
+		return new InputParser(new FileInputStream(filePath).getChannel());
+	}
+
+	/**
+	 * Moves to the start of the next line, skipping whatever is left of the
+	 * current line
+	 * 
+	 * @return True if there is another line, false at the end of the input
+	 * @throws IOException
+	 */
+	public boolean nextLine() throws IOException {
+		while (!endOfLine) {
+			int b = read();
+			if (b < 0 || b == '\n') {
+				endOfLine = true;
+			}
+		}
+		if (peek() < 0) {
+			return false;
+		}
+		endOfLine = false;
+		return true;
+	}
+
+	/**
+	 * Reads the next seat label on the current line. The row and column are
+	 * available from getRow and getColumn afterwards
+	 * 
+	 * @return True if a seat label was read, false if the line has no more
+	 * @throws IOException
+	 */
+	public boolean nextSeat() throws IOException {
+		// Skip the spaces in front of the label
+		int b = ' ';
+		while (!endOfLine && isSpace(b = read())) {
+			continue;
+		}
+		if (endOfLine || b < 0 || b == '\n') {
+			endOfLine = true;
+			return false;
+		}
+
+		row = 0;
+		column = 0;
+		int separators = 0;
+		while (true) {
+			if (b >= '0' && b <= '9') {
+				if (separators == 0) {
+					row = appendDigit(row, b);
+				} else if (separators == 1) {
+					column = appendDigit(column, b);
+				}
+			} else if (b == 'C') {
+				separators++;
+			}
+
+			b = read();
+			if (b < 0 || b == '\n') {
+				endOfLine = true;
+				break;
+			} else if (isSpace(b)) {
+				break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the rest of the current line as a number made up of every digit
+	 * on the line
+	 * 
+	 * @return The number, -1 if the line has no digits or Integer.MAX_VALUE
+	 *         if it is too large for an int
+	 * @throws IOException
+	 */
+	public int nextNumber() throws IOException {
+		int number = -1;
+		while (!endOfLine) {
+			int b = read();
+			if (b < 0 || b == '\n') {
+				endOfLine = true;
+			} else if (b >= '0' && b <= '9') {
+				number = appendDigit(Math.max(number, 0), b);
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * Get the row of the last seat label read, starting at 1
+	 * 
+	 * @return Row of the seat
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * Get the column of the last seat label read, starting at 1
+	 * 
+	 * @return Column of the seat
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Reads the next byte
+	 * 
+	 * @return The byte, or -1 at the end of the input
+	 */
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return bytes[position++] & 0xFF;
+	}
+
+	/**
+	 * Looks at the next byte without reading it
+	 * 
+	 * @return The byte, or -1 at the end of the input
+	 */
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return bytes[position] & 0xFF;
+	}
+
+	/**
+	 * Refills the buffer from the channel once every byte in it has been read
+	 * 
+	 * @return True if there are bytes to read, false at the end of the input
+	 */
+	private boolean fill() throws IOException {
+		while (!endOfInput) {
+			buffer.clear();
+			int read = channel.read(buffer);
+			if (read < 0) {
+				endOfInput = true;
+			} else if (read > 0) {
+				position = 0;
+				limit = read;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a digit to the end of a number, staying at Integer.MAX_VALUE once
+	 * the number is too large for an int
+	 * 
+	 * @param number
+	 *            - The digits read so far
+	 * @param digit
+	 *            - The character of the next digit
+	 * @return The number with the digit added
+	 */
+	public static int appendDigit(int number, int digit) {
+		int value = digit - '0';
+		if (number > (Integer.MAX_VALUE - value) / 10) {
+			return Integer.MAX_VALUE;
+		}
+		return number * 10 + value;
+	}
+
+	private static boolean isSpace(int b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -1,11 +1,24 @@
 package com.showclix.seating.util;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Timer;
+import java.util.TimerTask;
+
 /**
  * Wrapper class for stdout. Probably a bit unneccessary, the thinking here was
  * to how the output, debugging etc is handled. The way data is output could be
  * changed globally here since the rest of the application uses this as the
  * output interface.
  * 
+ * Besides the singleton, separate outputs can be opened on a channel, for
+ * example one output file per input file of a batch run.
+ * 
  * @author Bradley Sheets
  * @version 1.0
  * @date May 6, 2019
@@ -20,27 +33,88 @@ public final class Output {
 	// A flag could be added to the configuration file to toggle this mode
 	private boolean debug = false;
 
+	// When buffering, output is collected here and written to the channel
+	// once the buffer is full, the flush interval passes or flush is called.
+	// Null when output goes straight to System.out. Volatile so that the
+	// unbuffered path can check it without taking the lock
+	private volatile ByteBuffer buffer = null;
+	private WritableByteChannel channel = null;
+
+	// True when the channel writes to stdout, which close only flushes
+	private boolean stdout = false;
+
+	// Flushes the buffer on a timer while buffering
+	private Timer flusher = null;
+
+	// Set once the shutdown hook that flushes the buffer has been added
+	private boolean shutdownHookAdded = false;
+
 	private Output() {
 	}
 
 	/**
 	 * Handle an output message. Currently, this is just passed to system.out
+	 * unless the output is buffered
 	 * 
 	 * @param message
 	 *            - Message to output
 	 */
 	public void print(Object message) {
-		System.out.print(message);
+		// System.out does it's own locking, only the buffer needs ours
+		if (buffer == null) {
+			System.out.print(message);
+			return;
+		}
+		synchronized (this) {
+			if (buffer == null) {
+				System.out.print(message);
+			} else {
+				write(String.valueOf(message));
+			}
+		}
+	}
+
+	/**
+	 * Handle a single character of output, without creating a String when the
+	 * output is buffered
+	 * 
+	 * @param message
+	 *            - Character to output
+	 */
+	public void print(char message) {
+		if (buffer == null) {
+			System.out.print(message);
+			return;
+		}
+		synchronized (this) {
+			if (buffer == null) {
+				System.out.print(message);
+			} else {
+				write(message);
+			}
+		}
 	}
 
 	/**
 	 * Handle an output message. Currently, this is just passed to system.out
+	 * unless the output is buffered
 	 * 
 	 * @param message
 	 *            - Message to output
 	 */
 	public void println(Object message) {
-		System.out.println(message);
+		if (buffer == null) {
+			System.out.println(message);
+			return;
+		}
+		synchronized (this) {
+			if (buffer == null) {
+				System.out.println(message);
+			} else {
+				write(String.valueOf(message));
+				write('\n');
+			}
+		}
 	}
 
 	/**
@@ -56,13 +130,221 @@ public final class Output {
 		}
 	}
 
+	/**
+	 * Collects output in a buffer instead of printing every message to
+	 * System.out on it's own, see setBuffered(int, long, WritableByteChannel)
+	 * 
+	 * @param capacity
+	 *            - Size of the buffer in bytes, at least 1
+	 * @param flushInterval
+	 *            - Milliseconds between flushes, 0 to only flush when the
+	 *            buffer is full or flush is called
+	 * @throws IllegalArgumentException
+	 *             If the capacity is less than 1
+	 */
+	public synchronized void setBuffered(int capacity, long flushInterval) {
+		System.out.flush();
+		setBuffered(capacity, flushInterval, Channels.newChannel(new FileOutputStream(FileDescriptor.out)));
+		stdout = true;
+	}
+
+	/**
+	 * Collects output in a buffer that is written to the channel, for example
+	 * a FileChannel, once it is full, once the flush interval has passed or
+	 * when flush is called. Output is always written in the order it was
+	 * printed, and anything still buffered is flushed when the JVM shuts down.
+	 * 
+	 * @param capacity
+	 *            - Size of the buffer in bytes, at least 1
+	 * @param flushInterval
+	 *            - Milliseconds between flushes, 0 to only flush when the
+	 *            buffer is full or flush is called
+	 * @param channel
+	 *            - Channel the output is written to
+	 * @throws IllegalArgumentException
+	 *             If the capacity is less than 1
+	 */
+	public synchronized void setBuffered(int capacity, long flushInterval, WritableByteChannel channel) {
+		checkCapacity(capacity);
+		setUnbuffered();
+		this.buffer = ByteBuffer.allocate(capacity);
+		this.channel = channel;
+
+		if (flushInterval > 0) {
+			flusher = new Timer("Output flusher", true);
+			flusher.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					try {
+						flush();
+					} catch (IllegalStateException e) {
+						// The output is kept in the buffer, stop retrying on a
+						// channel that can not be written
+						e.printStackTrace();
+						cancel();
+					}
+				}
+			}, flushInterval, flushInterval);
+		}
+
+		if (!shutdownHookAdded) {
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					try {
+						flush();
+					} catch (IllegalStateException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+			shutdownHookAdded = true;
+		}
+	}
+
+	/**
+	 * Flushes anything still buffered and goes back to printing every message
+	 * straight to System.out
+	 */
+	public synchronized void setUnbuffered() {
+		flush();
+		if (flusher != null) {
+			flusher.cancel();
+			flusher = null;
+		}
+		buffer = null;
+		channel = null;
+		stdout = false;
+	}
+
+	/**
+	 * Writes everything that is buffered to the channel
+	 * 
+	 * @throws IllegalStateException
+	 *             If the channel could not be written to. Whatever was not
+	 *             written stays in the buffer, in order, for the next flush
+	 */
+	public synchronized void flush() {
+		try {
+			flushBuffer();
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to write the buffered output", e);
+		}
+	}
+
+	/**
+	 * Writes everything that is buffered to the channel, keeping anything
+	 * that could not be written at the start of the buffer
+	 */
+	private void flushBuffer() throws IOException {
+		if (buffer == null || buffer.position() == 0) {
+			return;
+		}
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			buffer.compact();
+		}
+	}
+
+	/**
+	 * Adds a message to the buffer, flushing whenever the buffer fills up
+	 */
+	private void write(String message) {
+		for (int i = 0; i < message.length(); i++) {
+			if (message.charAt(i) >= 0x80) {
+				// Rare, so fall back to encoding the whole message
+				write(message.getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+		}
+		for (int i = 0; i < message.length(); i++) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			buffer.put((byte) message.charAt(i));
+		}
+	}
+
+	private void write(char message) {
+		if (message >= 0x80) {
+			write(String.valueOf(message));
+			return;
+		}
+		if (!buffer.hasRemaining()) {
+			flush();
+		}
+		buffer.put((byte) message);
+	}
+
+	private void write(byte[] message) {
+		for (int offset = 0; offset < message.length;) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			int length = Math.min(buffer.remaining(), message.length - offset);
+			buffer.put(message, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Opens an output of it's own, separate from the singleton, that buffers
+	 * everything printed and writes it to the channel when the buffer is full
+	 * or flush or close is called. No timer or shutdown hook is started, so
+	 * the output must be closed once it is no longer needed
+	 * 
+	 * @param capacity
+	 *            - Size of the buffer in bytes, at least 1
+	 * @param channel
+	 *            - Channel the output is written to
+	 * @return The output
+	 * @throws IllegalArgumentException
+	 *             If the capacity is less than 1
+	 */
+	public static Output open(int capacity, WritableByteChannel channel) {
+		checkCapacity(capacity);
+		Output output = new Output();
+		output.buffer = ByteBuffer.allocate(capacity);
+		output.channel = channel;
+		return output;
+	}
+
+	/**
+	 * A buffer needs room for at least one byte, or nothing could ever be
+	 * written into it
+	 */
+	private static void checkCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The output buffer must hold at least 1 byte, not " + capacity);
+		}
+	}
+
+	/**
+	 * Flushes anything still buffered and closes the channel of an output
+	 * created with open or set with setBuffered. Output buffered to stdout is
+	 * only flushed, stdout itself is left open
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		flushBuffer();
+		if (channel != null && !stdout) {
+			channel.close();
+		}
+		setUnbuffered();
+	}
+
 	/**
 	 * Get the instance of the Output object. If no instance exists yet in
 	 * memory, one will be created and returned.
 	 * 
 	 * @return instance of the output object
 	 */
-	public static Output getInstance() {
+	public static synchronized Output getInstance() {
 		if (instance == null) {
 			instance = new Output();
 		}
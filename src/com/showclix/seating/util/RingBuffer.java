@@ -0,0 +1,136 @@
+package com.showclix.seating.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A RingBuffer passes work from exactly one producer thread to exactly one
+ * consumer thread through a fixed array of slots that are created up front
+ * and reused, so handing over an item never creates an object. The producer
+ * claims the next free slot, fills it in and publishes it. The consumer takes
+ * the next published slot, reads it and releases it so it can be filled
+ * again. Items always arrive in the order they were published.
+ * 
+ * The buffer is bounded: a producer that gets a full lap ahead of the
+ * consumer waits until a slot is released, and a consumer waits while there
+ * is nothing to take. Waiting spins briefly, then yields and finally parks
+ * for short intervals. A waiting thread that is interrupted stops waiting
+ * with an InterruptedException, which is how a stage that fails tells the
+ * others to give up.
+ * 
+ * @version 1.0
+ * 
+ */
+public final class RingBuffer<T> {
+
+	// Waits spin this many times, then yield this many times, before parking
+	private static final int SPINS = 64;
+	private static final int YIELDS = 64;
+
+	// How long a parked thread waits before checking again
+	private static final long PARK_NANOS = 20000;
+
+	private final T[] slots;
+	private final int mask;
+
+	// Number of slots published by the producer and released by the
+	// consumer. The slot of sequence s is slots[s & mask]
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong released = new AtomicLong();
+
+	// Last value of released seen by the producer and of published seen by
+	// the consumer, so the other side's counter is only read when it has to
+	// be
+	private long producerReleased = 0;
+	private long consumerPublished = 0;
+
+	/**
+	 * Creates a ring over the slots specified
+	 * 
+	 * @param slots
+	 *            - Preallocated slots, the length has to be a power of 2
+	 * @throws IllegalArgumentException
+	 *             If the number of slots is not a power of 2
+	 */
+	public RingBuffer(T[] slots) {
+		if (slots.length == 0 || Integer.bitCount(slots.length) != 1) {
+			throw new IllegalArgumentException("The number of slots must be a power of 2, not " + slots.length);
+		}
+		this.slots = slots;
+		this.mask = slots.length - 1;
+	}
+
+	/**
+	 * Get the next free slot for the producer to fill in, waiting while the
+	 * ring is full. Claiming again without publishing returns the same slot
+	 * 
+	 * @return The slot
+	 * @throws InterruptedException
+	 *             If the producer is interrupted while waiting
+	 */
+	public T claim() throws InterruptedException {
+		long next = published.get();
+		for (int attempt = 0; next - producerReleased >= slots.length; attempt++) {
+			producerReleased = released.get();
+			if (next - producerReleased >= slots.length) {
+				backOff(attempt);
+			}
+		}
+		return slots[(int) next & mask];
+	}
+
+	/**
+	 * Hands the slot returned by the last claim over to the consumer
+	 */
+	public void publish() {
+		published.lazySet(published.get() + 1);
+	}
+
+	/**
+	 * Get the next published slot for the consumer to read, waiting while the
+	 * ring is empty. Taking again without releasing returns the same slot
+	 * 
+	 * @return The slot
+	 * @throws InterruptedException
+	 *             If the consumer is interrupted while waiting
+	 */
+	public T take() throws InterruptedException {
+		long next = released.get();
+		for (int attempt = 0; next >= consumerPublished; attempt++) {
+			consumerPublished = published.get();
+			if (next >= consumerPublished) {
+				backOff(attempt);
+			}
+		}
+		return slots[(int) next & mask];
+	}
+
+	/**
+	 * Hands the slot returned by the last take back to the producer
+	 */
+	public void release() {
+		released.lazySet(released.get() + 1);
+	}
+
+	/**
+	 * Get the number of slots in the ring
+	 * 
+	 * @return Capacity of the ring
+	 */
+	public int capacity() {
+		return slots.length;
+	}
+
+	private static void backOff(int attempt) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		if (attempt < SPINS) {
+			return;
+		} else if (attempt < SPINS + YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+}
@@ -2,13 +2,38 @@ package com.showclix.seating.util;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The Settings class provides a simple way to load external configurations into
  * the application. As a Singleton, only one instance of the class can be
  * instantiated and it can be accessed throughout the application.
  * 
+ * Settings that differ from the configuration file for a single seating chart,
+ * for example one scenario of a batch run, are created with override. They
+ * fall back to the configuration file for anything they do not set and never
+ * change the singleton.
+ * 
+ * The values are held in an immutable snapshot that is parsed once when the
+ * file is loaded, so reading a setting never parses it again. Calling watch
+ * reloads the file whenever it changes on disk. A reload swaps in a complete
+ * new snapshot at once, so a reader never sees half of a change, and tells
+ * every Listener what the settings were before and after the change.
+ * 
  * @author Bradley Sheets
  * @version 1.0
  * @date May 1, 2019
@@ -16,63 +41,300 @@ import java.util.Properties;
  */
 public final class Settings {
 
+	/**
+	 * Told whenever the settings are reloaded with different values
+	 */
+	public interface Listener {
+
+		/**
+		 * Called on the thread that reloaded the settings
+		 * 
+		 * @param previous
+		 *            - The settings before the reload
+		 * @param current
+		 *            - The settings after the reload
+		 */
+		void settingsChanged(Settings previous, Settings current);
+	}
+
+	/**
+	 * A setting's value, parsed once as every type it can be read as
+	 */
+	private static final class Value {
+		final String string;
+
+		// The digits of the value as a number, null if it has none or is
+		// too large for an int
+		final Integer number;
+
+		final boolean flag;
+
+		Value(String string) {
+			this.string = string;
+
+			// Numbers are made up of every digit in the value, so "1,000" is
+			// 1000
+			StringBuilder digits = new StringBuilder();
+			for (int i = 0; i < string.length(); i++) {
+				char c = string.charAt(i);
+				if (c >= '0' && c <= '9') {
+					digits.append(c);
+				}
+			}
+			Integer number = null;
+			try {
+				number = Integer.valueOf(digits.toString());
+			} catch (NumberFormatException e) {
+				// Read as an int the default value is used, see getInt
+			}
+			this.number = number;
+
+			String setting = string.trim();
+			this.flag = setting.equalsIgnoreCase("true") || setting.equalsIgnoreCase("yes") || setting.equals("1");
+		}
+	}
+
 	// Instance of the Settings object.
 	private static Settings instance = null;
 
-	// Immutable name of the configuration file
-	private final String propertiesFile = "configurations.properites";
+	// Name of the configuration file, null for settings that are not loaded
+	// from a file such as overrides
+	private final String propertiesFile;
 
-	// We'll use the Java Properties object as the foundation of handling
-	// configurations
-	private Properties properties;
+	// Every setting by name. The map is never changed once it is created, a
+	// reload replaces it
+	private volatile Map<String, Value> values = Collections.emptyMap();
 
-	// Once the configurations have successfully loaded into memory, this flag
-	// will be set
-	private boolean propertiesLoaded = false;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	// Service watching the configuration file, null unless watch was called
+	private WatchService watchService;
 
 	/**
 	 * Being a Singleton, the constructor is private and can only be called once
 	 * upon the first instantiation.
 	 */
 	private Settings() {
-		// Instantiate the properties object
-		properties = new Properties();
+		this("configurations.properites");
+	}
+
+	/**
+	 * Creates settings that are loaded from the file specified
+	 */
+	private Settings(String propertiesFile) {
+		this.propertiesFile = propertiesFile;
 
 		// Load the configurations from the external properties file
 		loadProperties();
 	}
 
+	/**
+	 * Creates settings that read from the values specified. Used for
+	 * overrides and snapshots, which are never the singleton
+	 */
+	private Settings(Map<String, Value> values) {
+		this.propertiesFile = null;
+		this.values = values;
+	}
+
+	/**
+	 * Creates settings loaded from the properties file specified instead of
+	 * the configuration file. They can be reloaded and watched the same as
+	 * the singleton
+	 * 
+	 * @param file
+	 *            - Path of the properties file
+	 * @return The settings
+	 */
+	public static Settings load(String file) {
+		return new Settings(file);
+	}
+
+	/**
+	 * Creates settings that use the values specified and fall back to these
+	 * settings for everything else
+	 * 
+	 * @param overrides
+	 *            - Values to use instead of these settings
+	 * @return The new settings, these settings are left unchanged
+	 */
+	public Settings override(Properties overrides) {
+		Map<String, Value> values = new HashMap<String, Value>(this.values);
+		for (String property : overrides.stringPropertyNames()) {
+			values.put(property, new Value(overrides.getProperty(property)));
+		}
+		return new Settings(Collections.unmodifiableMap(values));
+	}
+
+	/**
+	 * Creates settings that use the values in the properties file specified
+	 * and fall back to these settings for everything else
+	 * 
+	 * @param file
+	 *            - Path of a properties file with the values to override
+	 * @return The new settings, these settings are left unchanged
+	 * @throws IOException
+	 *             If the file could not be read
+	 */
+	public Settings override(String file) throws IOException {
+		Properties overrides = new Properties();
+		try (Reader reader = new FileReader(file)) {
+			overrides.load(reader);
+		}
+		return override(overrides);
+	}
+
+	/**
+	 * Get settings that keep the values these settings have right now, even
+	 * if these settings are reloaded later
+	 * 
+	 * @return The snapshot
+	 */
+	public Settings snapshot() {
+		return propertiesFile == null ? this : new Settings(values);
+	}
+
 	/**
 	 * This method should be called upon construction of the Settings class and
 	 * will load all of the properties in the defined property file location.
-	 * Nothing fancy happens here, the data will be stored upon instantiation
-	 * and there are no listeners on the configuration. So, if settings are
-	 * changed while the application is running, the previous configurations
-	 * will still be what is in memory - the application will need to restart to
-	 * load new configurations.
-	 */
-	private void loadProperties() {
-		FileReader reader = null;
-		try {
-			reader = new FileReader(propertiesFile);
+	 * The values are parsed into a new snapshot which replaces the old one all
+	 * at once. If the file can not be read the previous values are kept, which
+	 * on the first load means the default values are used.
+	 * 
+	 * @return True if the file was loaded
+	 */
+	private boolean loadProperties() {
+		Properties properties = new Properties();
+		try (Reader reader = new FileReader(propertiesFile)) {
 			properties.load(reader);
-			propertiesLoaded = true;
 		} catch (IOException e) {
 			System.out.println("There was an error loading the configuration file.  Default values will be used");
-		} finally {
-			try {
-				if (reader != null) {
-					reader.close();
+			return false;
+		}
+
+		Map<String, Value> values = new HashMap<String, Value>();
+		for (String property : properties.stringPropertyNames()) {
+			values.put(property, new Value(properties.getProperty(property)));
+		}
+		this.values = Collections.unmodifiableMap(values);
+		return true;
+	}
+
+	/**
+	 * Loads the configuration file again. If any value changed, every
+	 * listener is told about the change
+	 * 
+	 * @return True if the file was loaded, false if it could not be read or
+	 *         these settings do not come from a file
+	 */
+	public synchronized boolean reload() {
+		if (propertiesFile == null) {
+			return false;
+		}
+		Settings previous = snapshot();
+		if (!loadProperties()) {
+			return false;
+		}
+		if (!sameValues(previous.values, values)) {
+			Settings current = snapshot();
+			for (Listener listener : listeners) {
+				listener.settingsChanged(previous, current);
+			}
+		}
+		return true;
+	}
+
+	private static boolean sameValues(Map<String, Value> a, Map<String, Value> b) {
+		if (a.size() != b.size()) {
+			return false;
+		}
+		for (Map.Entry<String, Value> entry : a.entrySet()) {
+			Value value = b.get(entry.getKey());
+			if (value == null || !value.string.equals(entry.getValue().string)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Starts reloading the configuration file whenever it is changed on disk,
+	 * on a daemon thread. Calling watch again does nothing
+	 * 
+	 * @throws IOException
+	 *             If the file's directory could not be watched
+	 * @throws IllegalStateException
+	 *             If these settings are not loaded from a file
+	 */
+	public synchronized void watch() throws IOException {
+		if (propertiesFile == null) {
+			throw new IllegalStateException("Only settings loaded from a file can be watched");
+		}
+		if (watchService != null) {
+			return;
+		}
+		Path file = Paths.get(propertiesFile).toAbsolutePath();
+		final Path name = file.getFileName();
+		final WatchService watchService = FileSystems.getDefault().newWatchService();
+		file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		this.watchService = watchService;
+
+		Thread watcher = new Thread("Settings watcher") {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						WatchKey key = watchService.take();
+						boolean changed = false;
+						for (WatchEvent<?> event : key.pollEvents()) {
+							changed |= name.equals(event.context());
+						}
+						if (changed) {
+							reload();
+						}
+						key.reset();
+					}
+				} catch (InterruptedException | ClosedWatchServiceException e) {
+					// Stopped watching
 				}
-			} catch (IOException e) {
-				/*
-				 * Not really important for the scope of this project, but would
-				 * probably be logged should this happen
-				 */
 			}
+		};
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	/**
+	 * Stops reloading the configuration file when it changes
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void stopWatching() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
 		}
 	}
 
+	/**
+	 * Adds a listener that is told whenever a reload changes the settings
+	 * 
+	 * @param listener
+	 *            - Listener to add
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added by addListener
+	 * 
+	 * @param listener
+	 *            - Listener to remove
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
 	/**
 	 * Get a string value from the configuration file
 	 * 
@@ -84,39 +346,52 @@ public final class Settings {
 	 *         properties file
 	 */
 	public String getString(String property, String defaultValue) {
-		String value = defaultValue;
-
-		if (propertiesLoaded) {
-
-		}
-		return value;
+		Value value = values.get(property);
+		return value != null ? value.string : defaultValue;
 	}
 
 	/**
-	 * Get an integer value from the configuration file
+	 * Get an integer value from the configuration file. The value is made up
+	 * of every digit in the setting
 	 * 
 	 * @param property
 	 *            - Property key to retrieve the value for
 	 * @param defaultValue
-	 *            - The default value if the property isn't found
+	 *            - The default value if the property isn't found, has no
+	 *            digits or is too large for an int
 	 * @return The Integer representation of the configuration from the
 	 *         properties file
 	 */
 	public int getInt(String property, int defaultValue) {
-		int value = defaultValue;
-		if (propertiesLoaded) {
-			value = Integer.parseInt(properties.getProperty(property).replaceAll("[^0-9]", ""));
-		}
-		return value;
+		Value value = values.get(property);
+		return value != null && value.number != null ? value.number : defaultValue;
+	}
+
+	/**
+	 * Get a boolean value from the configuration file. The values "true",
+	 * "yes" and "1" are considered true, anything else is false
+	 * 
+	 * @param property
+	 *            - Property key to retrieve the value for
+	 * @param defaultValue
+	 *            - The default value if the property isn't found
+	 * @return The Boolean representation of the configuration from the
+	 *         properties file
+	 */
+	public boolean getBoolean(String property, boolean defaultValue) {
+		Value value = values.get(property);
+		return value != null ? value.flag : defaultValue;
 	}
 
 	/**
 	 * This method will get the instance of the Settings object. If no instance
-	 * exists in memory yet, it will first be instantiated.
+	 * exists in memory yet, it will first be instantiated. Synchronized so
+	 * that threads asking for the settings at the same time share one
+	 * instance.
 	 * 
 	 * @return Reference to the instance of the Settings object in memory
 	 */
-	public static Settings getInstance() {
+	public static synchronized Settings getInstance() {
 		if (instance == null) {
 			instance = new Settings();
 		}
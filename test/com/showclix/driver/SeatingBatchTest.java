@@ -0,0 +1,88 @@
+package com.showclix.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Seating Batch Tests
+ * 
+ * Checks that a batch replays every input file into it's own results, using
+ * the properties file next to an input when there is one.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingBatchTest {
+
+	private static void write(Path file, String contents) throws IOException {
+		Files.write(file, contents.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static String read(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Replays two files, one on the configured chart and one on a smaller
+	 * chart set by it's properties file, and checks the results and counts
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testBatch() throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("batch");
+		Path results = directory.resolve("results");
+		write(directory.resolve("a.txt"), "R1C6\n3\n12\n");
+		write(directory.resolve("b.txt"), "R1C1\n3\n3\n");
+		write(directory.resolve("b.properties"), "seating.chart.rowCount = 1\nseating.chart.seatCount = 5\n");
+
+		List<Path> inputs = SeatingBatch.findInputs(directory.toString());
+		assertEquals(Arrays.asList(directory.resolve("a.txt"), directory.resolve("b.txt")), inputs);
+		assertEquals(Arrays.asList(directory.resolve("b.txt")), SeatingBatch.findInputs(directory.resolve("b*.txt").toString()));
+
+		SeatingBatch batch = new SeatingBatch(results, 2);
+		batch.run(inputs);
+		assertEquals(2, batch.getFiles());
+		assertEquals(4, batch.getRequests());
+		assertEquals(1, batch.getFailures());
+
+		assertEquals("R2C5 - R2C7\n29\n", read(results.resolve("a.txt.out")));
+		assertEquals("R1C2 - R1C4\nNot Available\n1\n", read(results.resolve("b.txt.out")));
+		assertEquals(0, batch.getFailedFiles());
+	}
+
+	/**
+	 * Replays a file whose properties can not create a seating chart next to
+	 * one that is fine, and checks that the failure is written to the failed
+	 * file's results and counted without stopping the other file
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testFailedFile() throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("batch");
+		write(directory.resolve("a.txt"), "R1C6\n3\n");
+		write(directory.resolve("b.txt"), "R1C1\n3\n");
+		write(directory.resolve("b.properties"), "seating.search.mode = scan\nseating.concurrent = true\n");
+
+		SeatingBatch batch = new SeatingBatch(null, 2);
+		batch.run(SeatingBatch.findInputs(directory.toString()));
+		assertEquals(2, batch.getFiles());
+		assertEquals(1, batch.getRequests());
+		assertEquals(1, batch.getFailedFiles());
+
+		assertEquals("R2C5 - R2C7\n29\n", read(directory.resolve("a.txt.out")));
+		assertTrue(read(directory.resolve("b.txt.out")).startsWith("Failed to replay " + directory.resolve("b.txt")));
+	}
+}
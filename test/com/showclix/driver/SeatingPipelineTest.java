@@ -0,0 +1,86 @@
+package com.showclix.driver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.showclix.seating.util.Output;
+import com.showclix.seating.util.Settings;
+
+/**
+ * Seating Pipeline Tests
+ * 
+ * Checks that replaying an input through the pipeline prints exactly what
+ * replaying it on one thread prints, and counts the same requests and
+ * failures.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingPipelineTest {
+
+	/**
+	 * Replays the file with the pipeline turned on or off, storing the number
+	 * of requests and failures in counts
+	 * 
+	 * @return Everything the driver printed
+	 */
+	private static String replay(Path input, String pipeline, int[] counts) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("seating.chart.rowCount", "20");
+		properties.setProperty("seating.chart.seatCount", "30");
+		properties.setProperty("seating.pipeline", pipeline);
+		properties.setProperty("seating.pipeline.capacity", "4");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Output output = Output.open(256, Channels.newChannel(out));
+		SeatingDriver driver = new SeatingDriver(Settings.getInstance().override(properties), output);
+		driver.initialize();
+		driver.importFile(input.toString());
+		output.close();
+
+		counts[0] = driver.getRequests();
+		counts[1] = driver.getFailures();
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Replays random inputs, with invalid seats, blank lines and groups larger
+	 * than the maximum, through ring buffers small enough that every stage
+	 * keeps waiting on the others
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSameAsSerial() throws IOException {
+		Random rand = new Random(7);
+		Path input = Files.createTempFile("pipeline", ".txt");
+		for (int i = 0; i < 20; i++) {
+			StringBuilder lines = new StringBuilder();
+			for (int seat = rand.nextInt(10); seat > 0; seat--) {
+				lines.append('R').append(rand.nextInt(21) + 1).append('C').append(rand.nextInt(30) + 1).append(' ');
+			}
+			lines.append('\n');
+			for (int request = rand.nextInt(300); request > 0; request--) {
+				lines.append(rand.nextInt(50) == 0 ? "" : String.valueOf(rand.nextInt(12))).append('\n');
+			}
+			Files.write(input, lines.toString().getBytes(StandardCharsets.US_ASCII));
+
+			int[] serialCounts = new int[2];
+			int[] pipelineCounts = new int[2];
+			String serial = replay(input, "false", serialCounts);
+			assertEquals(serial, replay(input, "true", pipelineCounts));
+			assertEquals(serialCounts[0], pipelineCounts[0]);
+			assertEquals(serialCounts[1], pipelineCounts[1]);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.showclix.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.util.Settings;
+
+/**
+ * Seating Workload Tests
+ * 
+ * Checks that workloads are the same every time they are generated from the
+ * same seed, follow their settings, and that replaying one gives the same
+ * results as the driver.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingWorkloadTest {
+
+	private static Settings workload(int seed) {
+		Properties properties = new Properties();
+		properties.setProperty("seating.workload.rowCount", "20");
+		properties.setProperty("seating.workload.seatCount", "30");
+		properties.setProperty("seating.workload.requests", "2000");
+		properties.setProperty("seating.workload.seed", Integer.toString(seed));
+		properties.setProperty("seating.workload.prefilled", "25");
+		properties.setProperty("seating.workload.clustering", "80");
+		properties.setProperty("seating.workload.groups", "1:2, 3:5, 12:1");
+		properties.setProperty("seating.requests.max", "10");
+		return Settings.getInstance().override(properties);
+	}
+
+	private static String generate(int seed) throws IOException {
+		StringWriter writer = new StringWriter();
+		new SeatingWorkload(workload(seed)).write(writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Generates workloads from two seeds and checks the pre-reserved seats
+	 * and group sizes
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testGenerate() throws IOException {
+		String input = generate(7);
+		assertEquals(input, generate(7));
+		assertFalse(input.equals(generate(8)));
+
+		String[] lines = input.split("\n");
+		assertEquals(2001, lines.length);
+
+		// A quarter of the 600 seats, every one of them different and on the
+		// chart
+		Set<String> seats = new HashSet<String>(Arrays.asList(lines[0].split(" ")));
+		assertEquals(150, seats.size());
+		for (String seat : seats) {
+			int column = seat.indexOf('C');
+			assertTrue(Integer.parseInt(seat.substring(1, column)) <= 20);
+			assertTrue(Integer.parseInt(seat.substring(column + 1)) <= 30);
+		}
+
+		int[] counts = new int[13];
+		for (int i = 1; i < lines.length; i++) {
+			counts[Integer.parseInt(lines[i])]++;
+		}
+		assertEquals(2000, counts[1] + counts[3] + counts[12]);
+		assertTrue(counts[3] > counts[1] && counts[1] > counts[12] && counts[12] > 0);
+	}
+
+	/**
+	 * Writes a workload and it's properties file, then replays it twice and
+	 * checks the results against the driver replaying the same file
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws InvalidSeatException
+	 */
+	@Test
+	public void testReplay() throws IOException, InterruptedException, InvalidSeatException {
+		Path directory = Files.createTempDirectory("workload");
+		Path input = directory.resolve("workload.txt");
+		new SeatingWorkload(workload(7)).write(input);
+		assertEquals(generate(7), new String(Files.readAllBytes(input), StandardCharsets.US_ASCII));
+
+		SeatingReplay replay = new SeatingReplay(input);
+		replay.run();
+		long checksum = replay.getChecksum();
+		assertEquals(2000, replay.getGroupCount());
+		assertEquals(2000, replay.getPlaced() + replay.getNotAvailable() + replay.getRejected());
+		assertEquals(1 - replay.getAvailableSeats() / 600.0, replay.getFillRate(), 1e-9);
+		assertTrue(replay.getFillRate() > 0.9);
+
+		replay.run();
+		assertEquals(checksum, replay.getChecksum());
+
+		// The driver places the same groups on the chart from the properties
+		// file
+		SeatingBatch batch = new SeatingBatch(directory, 1);
+		batch.run(Arrays.asList(input));
+		assertEquals(replay.getRejected(), batch.getFailures());
+		String[] results = new String(Files.readAllBytes(directory.resolve("workload.txt.out")), StandardCharsets.US_ASCII).split("\n");
+		int notAvailable = 0;
+		for (String result : results) {
+			if (result.equals("Not Available")) {
+				notAvailable++;
+			}
+		}
+		assertEquals(replay.getNotAvailable(), notAvailable);
+		assertEquals(Integer.toString(replay.getAvailableSeats()), results[results.length - 1]);
+	}
+}
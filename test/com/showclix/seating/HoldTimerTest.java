@@ -0,0 +1,87 @@
+package com.showclix.seating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Hold Timer Tests
+ * 
+ * Checks that the timing wheel expires every hold in the first tick that
+ * ends at or after it's expiry time, including holds that are moved down
+ * from the higher levels of the wheel, and never expires removed holds.
+ * 
+ * @version 1.0
+ * 
+ */
+public class HoldTimerTest {
+
+	/**
+	 * Adds holds that expire anywhere from right away to a few hundred
+	 * thousand ticks out, removes some of them, and advances the clock in
+	 * uneven steps while adding more
+	 */
+	@Test
+	public void testExpiry() {
+		Random rand = new Random();
+		for (int i = 0; i < 5; i++) {
+			long tick = rand.nextInt(10) + 1;
+			long now = rand.nextInt(1000000);
+			HoldTimer timer = new HoldTimer(tick, now);
+			List<SeatHold> waiting = new ArrayList<SeatHold>();
+			List<SeatHold> removed = new ArrayList<SeatHold>();
+
+			// Time each hold is due at: once the tick it's expiry time falls
+			// in has ended, but never before the tick that was current when
+			// it was added
+			Map<SeatHold, Long> due = new IdentityHashMap<SeatHold, Long>();
+
+			while (now < 3000000) {
+				for (int j = rand.nextInt(20); j > 0; j--) {
+					int reach = rand.nextInt(4);
+					long ttl = reach == 0 ? rand.nextInt(300) : reach == 1 ? rand.nextInt(3000) : rand.nextInt(300000);
+					SeatHold hold = new SeatHold(null, now + ttl);
+					due.put(hold, Math.max((now + ttl + tick - 1) / tick * tick, timer.getNextDue()));
+					timer.add(hold);
+					waiting.add(hold);
+				}
+				if (!waiting.isEmpty() && rand.nextInt(4) == 0) {
+					SeatHold hold = waiting.remove(rand.nextInt(waiting.size()));
+					assertTrue(timer.remove(hold));
+					assertFalse(timer.remove(hold));
+					removed.add(hold);
+				}
+
+				now += rand.nextInt(rand.nextBoolean() ? 50 : 5000);
+				List<SeatHold> expired = new ArrayList<SeatHold>();
+				for (SeatHold hold = timer.advance(now); hold != null; hold = hold.next) {
+					expired.add(hold);
+				}
+
+				List<SeatHold> expected = new ArrayList<SeatHold>();
+				for (SeatHold hold : waiting) {
+					if (due.get(hold) <= now) {
+						expected.add(hold);
+					}
+				}
+				assertEquals(expected.size(), expired.size());
+				assertTrue(expired.containsAll(expected));
+				waiting.removeAll(expected);
+				assertEquals(waiting.size(), timer.size());
+				assertTrue(timer.getNextDue() > now);
+			}
+
+			for (SeatHold hold : removed) {
+				assertFalse(timer.remove(hold));
+			}
+		}
+	}
+}
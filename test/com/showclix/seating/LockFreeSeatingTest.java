@@ -0,0 +1,144 @@
+package com.showclix.seating;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+
+/**
+ * Lock Free Seating Tests
+ * 
+ * Checks that the lock free seating chart places groups the same way Seating
+ * does, and stress tests it with many threads fighting over the same seats.
+ * 
+ * @version 1.0
+ * 
+ */
+public class LockFreeSeatingTest {
+
+	/**
+	 * Fills 200 random seating arrangements with random pre-reservations and
+	 * group requests on a single thread and checks that every placement is the
+	 * same as Seating
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testMatchesSeating() throws InvalidSeatException, MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 200; i++) {
+			int rows = rand.nextInt(14) + 1;
+			int columns = rand.nextInt(150) + 1;
+			Seating seating = new Seating(rows, columns);
+			LockFreeSeating lockFree = new LockFreeSeating(rows, columns);
+
+			for (int j = rand.nextInt(rows * columns / 2 + 1); j > 0; j--) {
+				int row = rand.nextInt(rows) + 1;
+				int column = rand.nextInt(columns) + 1;
+				if (!seating.isSeatReserved(row, column)) {
+					seating.preReserveSeat(row, column);
+					lockFree.preReserveSeat(row, column);
+				}
+			}
+
+			for (int j = 0; j < rows * columns; j++) {
+				int total = rand.nextInt(10) + 1;
+				assertEquals(seating.requestSeats(total), lockFree.requestSeats(total));
+			}
+			assertEquals(seating.getAvailableSeats(), lockFree.getAvailableSeats());
+		}
+	}
+
+	/**
+	 * Has 16 threads request small groups on small seating charts, so that
+	 * they are all fighting over the center seats, and checks that no seat was
+	 * ever given to more than one group. Rows wider than 64 seats have groups
+	 * claimed across two words, which are given back when the second word is
+	 * taken first. Afterwards every seat still free must be found again by
+	 * single seat requests
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testNoDoubleBooking() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			final int rows = 10;
+			final int columns = 20 + i * 3;
+			final LockFreeSeating seating = new LockFreeSeating(rows, columns);
+
+			final List<List<Integer>> claims = new ArrayList<List<Integer>>();
+			List<Thread> threads = new ArrayList<Thread>();
+			for (int t = 0; t < 16; t++) {
+				final Random rand = new Random(i * 16 + t);
+				final List<Integer> claimed = new ArrayList<Integer>();
+				claims.add(claimed);
+				threads.add(new Thread() {
+					@Override
+					public void run() {
+						for (int j = 0; j < rows * columns / 4; j++) {
+							int total = rand.nextInt(4) + 1;
+							int first = seating.reserveSeats(total);
+							for (int seat = first; seat >= 0 && seat < first + total; seat++) {
+								claimed.add(seat);
+							}
+						}
+					}
+				});
+			}
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			boolean[] taken = new boolean[rows * columns];
+			int reserved = 0;
+			for (List<Integer> claimed : claims) {
+				for (int seat : claimed) {
+					assertEquals(false, taken[seat]);
+					taken[seat] = true;
+					reserved++;
+				}
+			}
+			assertEquals(rows * columns - reserved, seating.getAvailableSeats());
+			for (int seat = 0; seat < taken.length; seat++) {
+				assertEquals(taken[seat], seating.isSeatReserved(seat / columns + 1, seat % columns + 1));
+			}
+
+			while (seating.reserveSeats(1) >= 0) {
+				continue;
+			}
+			assertEquals(0, seating.getAvailableSeats());
+		}
+	}
+
+	/**
+	 * Pre-reserves seats that are already taken and checks that both engines
+	 * count them the same way
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testPreReserveTaken() throws InvalidSeatException, MaximumRequestsExceededException {
+		Seating seating = new Seating(3, 11);
+		LockFreeSeating lockFree = new LockFreeSeating(3, 11);
+		for (int i = 0; i < 2; i++) {
+			seating.preReserveSeat(1, 6);
+			lockFree.preReserveSeat(1, 6);
+		}
+		assertEquals(seating.requestSeats(3), lockFree.requestSeats(3));
+		seating.preReserveSeat(2, 6);
+		lockFree.preReserveSeat(2, 6);
+		assertEquals(29, seating.getAvailableSeats());
+		assertEquals(29, lockFree.getAvailableSeats());
+	}
+}
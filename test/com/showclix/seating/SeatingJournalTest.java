@@ -0,0 +1,272 @@
+package com.showclix.seating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+
+/**
+ * Seating Journal Tests
+ * 
+ * Makes changes to a journaled seating chart, abandons it without closing the
+ * journal as if the JVM had stopped, and checks that the recovered chart is
+ * the same.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingJournalTest {
+
+	private File journalFile;
+	private File snapshotFile;
+
+	@Before
+	public void setUp() throws IOException {
+		journalFile = File.createTempFile("seating", ".journal");
+		snapshotFile = new File(journalFile.getPath() + ".snapshot");
+		journalFile.delete();
+	}
+
+	@After
+	public void tearDown() {
+		journalFile.delete();
+		snapshotFile.delete();
+	}
+
+	/**
+	 * Replays pre-reservations, group requests, releases and Seat view changes
+	 * from the journal, ignoring a record that was only partly written
+	 * 
+	 * @throws IOException
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testReplay() throws IOException, InvalidSeatException, MaximumRequestsExceededException {
+		Seating seating = new SeatingJournal(journalFile.getPath()).recover(9, 80);
+		seating.preReserveSeat(1, 40);
+		seating.preReserveSeat(2, 41);
+		for (int i = 1; i <= 10; i++) {
+			seating.requestSeats(i);
+		}
+		seating.requestSeats(new int[] { 3, 4, 5 });
+		seating.getSeat(0, 9).setPreReservation();
+		seating.getSeat(0, 40).removeReservation();
+		seating.release(1, 36, 45);
+
+		// A record that was cut off part way through
+		try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+			out.write(new byte[] { 0, 0, 0, 2, 0, 0 });
+		}
+
+		Seating recovered = new SeatingJournal(journalFile.getPath()).recover(9, 80);
+		assertSame(seating, recovered);
+		for (int i = 10; i >= 1; i--) {
+			assertEquals(seating.requestSeats(i), recovered.requestSeats(i));
+		}
+	}
+
+	/**
+	 * Checks that a chart is recovered from the snapshot plus the changes made
+	 * after the last checkpoint
+	 * 
+	 * @throws IOException
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testCheckpoint() throws IOException, InvalidSeatException, MaximumRequestsExceededException {
+		SeatingJournal journal = new SeatingJournal(journalFile.getPath(), snapshotFile.getPath());
+		Seating seating = journal.recover(5, 30);
+		seating.preReserveSeat(1, 15);
+		seating.requestSeats(4);
+		journal.checkpoint(seating);
+		assertEquals(16, journalFile.length());
+		seating.requestSeats(6);
+		seating.preReserveSeat(5, 30);
+		journal.checkpoint(seating);
+		seating.requestSeats(2);
+
+		Seating recovered = new SeatingJournal(journalFile.getPath(), snapshotFile.getPath()).recover(5, 30);
+		assertSame(seating, recovered);
+		assertEquals(seating.requestSeats(3), recovered.requestSeats(3));
+	}
+
+	/**
+	 * Checks that a complete record that does not fit the chart is reported
+	 * rather than treated as a torn write, and that the records after it are
+	 * not thrown away
+	 * 
+	 * @throws IOException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testInvalidRecord() throws IOException, MaximumRequestsExceededException {
+		Seating seating = new SeatingJournal(journalFile.getPath()).recover(3, 11);
+		seating.requestSeats(3);
+		seating.requestSeats(2);
+
+		// A record for a row the chart does not have, followed by a valid one
+		try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+			ByteBuffer records = ByteBuffer.allocate(32);
+			records.putInt(SeatingJournal.RESERVE).putInt(99).putInt(0).putInt(1);
+			records.putInt(SeatingJournal.RESERVE).putInt(2).putInt(0).putInt(1);
+			out.write(records.array());
+		}
+		long length = journalFile.length();
+
+		try {
+			new SeatingJournal(journalFile.getPath()).recover(3, 11);
+			fail("A journal with an invalid record should not be recovered");
+		} catch (IOException e) {
+			assertEquals("Seating journal " + journalFile.getPath() + " has an invalid record at byte 48", e.getMessage());
+		}
+		assertEquals(length, journalFile.length());
+	}
+
+	/**
+	 * Resizes a chart after a checkpoint and checks that the recovered chart
+	 * comes back at the new size with every reservation made before and after
+	 * the resize, and that none of the journal is thrown away
+	 * 
+	 * @throws IOException
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testResize() throws IOException, InvalidSeatException, MaximumRequestsExceededException {
+		SeatingJournal journal = new SeatingJournal(journalFile.getPath(), snapshotFile.getPath());
+		Seating seating = journal.recover(3, 11);
+		seating.requestSeats(5);
+		journal.checkpoint(seating);
+		seating.requestSeats(4);
+		seating.resize(5, 11);
+		seating.requestSeats(3);
+		seating.preReserveSeat(5, 11);
+		long length = journalFile.length();
+
+		Seating recovered = new SeatingJournal(journalFile.getPath(), snapshotFile.getPath()).recover(3, 11);
+		assertEquals(5, recovered.getRowCount());
+		assertEquals(11, recovered.getSeatCount());
+		assertEquals(length, journalFile.length());
+		assertSame(seating, recovered);
+		assertEquals(seating.requestSeats(6), recovered.requestSeats(6));
+	}
+
+	/**
+	 * Checks that once writing to the journal fails the chart refuses every
+	 * further change, and that recovering the journal brings back the chart as
+	 * it was before the failed write
+	 * 
+	 * @throws IOException
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testFailedSync() throws IOException, InvalidSeatException, MaximumRequestsExceededException {
+		SeatingJournal journal = new SeatingJournal(journalFile.getPath());
+		Seating seating = journal.recover(3, 11);
+		seating.requestSeats(3);
+
+		// Closing the journal under the chart makes the next write fail
+		journal.close();
+		try {
+			seating.requestSeats(2);
+			fail("The write to the closed journal should fail");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertTrue(journal.isFailed());
+
+		int available = seating.getAvailableSeats();
+		try {
+			seating.requestSeats(1);
+			fail("A chart with a failed journal should refuse changes");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		try {
+			seating.preReserveSeat(3, 1);
+			fail("A chart with a failed journal should refuse changes");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		assertEquals(available, seating.getAvailableSeats());
+		try {
+			journal.sync();
+			fail("A failed journal should stay failed");
+		} catch (IOException e) {
+			// Expected
+		}
+
+		Seating recovered = new SeatingJournal(journalFile.getPath()).recover(3, 11);
+		assertEquals(30, recovered.getAvailableSeats());
+	}
+
+	/**
+	 * Checks that reading the available seats does not fail when the journal
+	 * fails while the holds that ran out are expired, or has failed before
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testFailedExpiry() throws Exception {
+		SeatingJournal journal = new SeatingJournal(journalFile.getPath());
+		Seating seating = journal.recover(3, 11);
+		SeatHold hold = seating.holdSeats(2, 0);
+		journal.close();
+
+		// Wait for the hold's tick to end so reading the seats expires it
+		Thread.sleep(250);
+		assertEquals(33, seating.getAvailableSeats());
+		assertTrue(hold.isExpired());
+		assertTrue(journal.isFailed());
+		assertEquals(33, seating.getAvailableSeats());
+	}
+
+	/**
+	 * Checks that a journal written by another version is reported as such
+	 * rather than as not being a journal
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testVersion() throws IOException {
+		try (FileOutputStream out = new FileOutputStream(journalFile)) {
+			out.write(ByteBuffer.allocate(16).putInt(0x534A4E4C).putInt(1).putLong(0).array());
+		}
+		try {
+			new SeatingJournal(journalFile.getPath()).recover(3, 11);
+			fail("A version 1 journal should not be recovered");
+		} catch (IOException e) {
+			assertEquals("Unsupported seating journal version 1: " + journalFile.getPath(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Checks that two charts have the same available seats and the same seats
+	 * reserved
+	 */
+	private static void assertSame(Seating expected, Seating actual) throws InvalidSeatException {
+		assertEquals(expected.getAvailableSeats(), actual.getAvailableSeats());
+		for (int row = 0; expected.isValidSeat(row, 0); row++) {
+			for (int column = 0; expected.isValidSeat(row, column); column++) {
+				Seat seat = expected.getSeat(row, column);
+				Seat other = actual.getSeat(row, column);
+				assertEquals(seat.isReserved(), other.isReserved());
+				assertEquals(seat.getSeatStatusSymbol(), other.getSeatStatusSymbol());
+			}
+		}
+	}
+}
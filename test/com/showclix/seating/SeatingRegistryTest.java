@@ -0,0 +1,260 @@
+package com.showclix.seating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.showclix.seating.exceptions.InvalidSeatException;
+import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+
+/**
+ * Seating Registry Tests
+ * 
+ * Checks that charts survive snapshots, being evicted and restored, and that
+ * the least recently used charts are the ones evicted.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SeatingRegistryTest {
+
+	/**
+	 * Takes a snapshot of a chart with pre-reservations and group requests and
+	 * checks that the restored chart is identical and keeps placing groups the
+	 * same way
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 * @throws IOException
+	 */
+	@Test
+	public void testSnapshot() throws InvalidSeatException, MaximumRequestsExceededException, IOException {
+		Seating seating = new Seating(7, 130);
+		seating.preReserveSeat(1, 65);
+		seating.preReserveSeat(2, 64);
+		seating.preReserveSeat(7, 130);
+		for (int i = 1; i <= 10; i++) {
+			seating.requestSeats(i);
+		}
+
+		Seating restored = Seating.fromBytes(seating.toBytes());
+		assertEquals(seating.getAvailableSeats(), restored.getAvailableSeats());
+		for (int row = 1; row <= 7; row++) {
+			for (int column = 1; column <= 130; column++) {
+				assertEquals(seating.isSeatReserved(row, column), restored.isSeatReserved(row, column));
+			}
+		}
+		for (int i = 10; i >= 1; i--) {
+			assertEquals(seating.requestSeats(i), restored.requestSeats(i));
+		}
+	}
+
+	/**
+	 * Saves a chart to a snapshot file and checks that the chart loaded back
+	 * from it matches
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 * @throws IOException
+	 */
+	@Test
+	public void testSnapshotFile() throws InvalidSeatException, MaximumRequestsExceededException, IOException {
+		Seating seating = new Seating(20, 70, SearchMode.SCAN);
+		seating.preReserveSeat(1, 35);
+		for (int i = 0; i < 50; i++) {
+			seating.requestSeats(i % 10 + 1);
+		}
+
+		File file = File.createTempFile("seating", ".snapshot");
+		try {
+			SeatingSnapshot.save(seating, file.getPath());
+			Seating restored = SeatingSnapshot.load(file.getPath());
+			assertEquals(seating.getAvailableSeats(), restored.getAvailableSeats());
+			for (int i = 0; i < 50; i++) {
+				assertEquals(seating.requestSeats(i % 10 + 1), restored.requestSeats(i % 10 + 1));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Checks that a corrupt or truncated snapshot is reported as an
+	 * IOException before any chart is allocated for it
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCorruptSnapshot() throws IOException {
+		byte[] snapshot = new Seating(10, 100).toBytes();
+
+		// Search mode, size, available seats and magic number of the header
+		int[][] corruptions = { { 16, 99 }, { 16, -1 }, { 8, 0 }, { 12, -5 }, { 8, Integer.MAX_VALUE }, { 12, Integer.MAX_VALUE }, { 24, 1001 },
+				{ 0, 42 } };
+		for (int[] corruption : corruptions) {
+			byte[] bytes = snapshot.clone();
+			ByteBuffer.wrap(bytes).putInt(corruption[0], corruption[1]);
+			try {
+				Seating.fromBytes(bytes);
+				fail("Snapshot with " + corruption[1] + " at " + corruption[0] + " should not load");
+			} catch (IOException e) {
+				// Expected
+			}
+		}
+
+		try {
+			Seating.fromBytes(Arrays.copyOf(snapshot, snapshot.length - 1));
+			fail("Truncated snapshot should not load");
+		} catch (IOException e) {
+			assertEquals("Seating chart snapshot is truncated", e.getMessage());
+		}
+	}
+
+	/**
+	 * Fills a registry past it's memory budget and checks that the least
+	 * recently used charts are evicted and come back with their reservations
+	 * 
+	 * @throws MaximumRequestsExceededException
+	 * @throws IOException
+	 */
+	@Test
+	public void testEviction() throws MaximumRequestsExceededException, IOException {
+		long size = new Seating(10, 100).getMemoryEstimate();
+		SeatingRegistry registry = new SeatingRegistry(size * 2);
+
+		registry.create("a", 10, 100).requestSeats(5);
+		registry.create("b", 10, 100).requestSeats(3);
+		assertTrue(registry.isLoaded("a"));
+		assertTrue(registry.isLoaded("b"));
+
+		// Use "a" so that "b" is the least recently used
+		registry.get("a");
+		registry.create("c", 10, 100);
+		assertTrue(registry.isLoaded("a"));
+		assertFalse(registry.isLoaded("b"));
+		assertTrue(registry.contains("b"));
+		assertEquals(1, registry.getEvictions());
+
+		Seating b = registry.get("b");
+		assertEquals(997, b.getAvailableSeats());
+		assertEquals("R2C50 - R2C52", b.requestSeats(3));
+		assertEquals(1, registry.getMisses());
+		assertEquals(1, registry.getHits());
+		assertTrue(registry.getMemoryUsed() <= registry.getMemoryBudget());
+
+		assertNull(registry.get("d"));
+		assertTrue(registry.remove("a"));
+		assertFalse(registry.contains("a"));
+	}
+
+	/**
+	 * Checks that a LAZY chart that grows while it is used is estimated again
+	 * when it is asked for, evicting the other charts to stay in the budget
+	 * 
+	 * @throws MaximumRequestsExceededException
+	 * @throws IOException
+	 */
+	@Test
+	public void testLazyGrowth() throws MaximumRequestsExceededException, IOException {
+		long size = new Seating(100, 100, SearchMode.LAZY).getMemoryEstimate();
+		SeatingRegistry registry = new SeatingRegistry(size * 3);
+		registry.put("a", new Seating(100, 100, SearchMode.LAZY));
+		registry.put("b", new Seating(100, 100, SearchMode.LAZY));
+		assertEquals(size * 2, registry.getMemoryUsed());
+
+		Seating a = registry.get("a");
+		for (int i = 0; i < 500; i++) {
+			a.requestSeats(10);
+		}
+		assertTrue(a.getMemoryEstimate() > size * 2);
+
+		assertTrue(registry.get("a") == a);
+		assertFalse(registry.isLoaded("b"));
+		assertEquals(a.getMemoryEstimate(), registry.getMemoryUsed());
+	}
+
+	/**
+	 * Checks that a chart acquired by one thread is not evicted while another
+	 * thread's requests fill the registry, so none of the reservations made
+	 * through it are lost, and that it can be evicted once it is released
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testPinnedNotEvicted() throws Exception {
+		long size = new Seating(10, 100).getMemoryEstimate();
+		final SeatingRegistry registry = new SeatingRegistry(size * 2);
+		registry.create("a", 10, 100);
+
+		final Seating a = registry.acquire("a");
+		assertTrue(registry.isPinned("a"));
+
+		// Another thread creates and uses enough charts to evict "a" many
+		// times over while it is in use
+		Thread other = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < 20; i++) {
+						registry.create("e" + i, 10, 100);
+						registry.get("e" + (i / 2)).requestSeats(1);
+					}
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		other.start();
+		for (int i = 0; i < 100; i++) {
+			a.requestSeats(10);
+		}
+		other.join();
+
+		assertTrue(registry.isLoaded("a"));
+		assertTrue(registry.get("a") == a);
+		int available = a.getAvailableSeats();
+		assertTrue(available < 1000);
+		registry.release("a");
+		assertFalse(registry.isPinned("a"));
+
+		registry.create("f", 10, 100);
+		registry.create("g", 10, 100);
+		assertFalse(registry.isLoaded("a"));
+		assertEquals(available, registry.get("a").getAvailableSeats());
+	}
+
+	/**
+	 * Checks that a chart with seats on hold is not evicted, which would turn
+	 * the held seats into reservations that never expire, and that it can be
+	 * evicted once the hold is cancelled
+	 * 
+	 * @throws MaximumRequestsExceededException
+	 * @throws IOException
+	 */
+	@Test
+	public void testHeldNotEvicted() throws MaximumRequestsExceededException, IOException {
+		long size = new Seating(10, 100).getMemoryEstimate();
+		SeatingRegistry registry = new SeatingRegistry(size * 2);
+		Seating a = registry.create("a", 10, 100);
+		SeatHold hold = a.holdSeats(4, 60000);
+
+		registry.create("b", 10, 100);
+		registry.create("c", 10, 100);
+		assertTrue(registry.isLoaded("a"));
+		assertFalse(registry.isLoaded("b"));
+
+		assertTrue(a.cancel(hold));
+		registry.create("d", 10, 100);
+		assertFalse(registry.isLoaded("a"));
+		assertEquals(1000, registry.get("a").getAvailableSeats());
+	}
+}
@@ -1,13 +1,24 @@
 package com.showclix.seating;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 import java.util.Random;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.Test;
 
 import com.showclix.seating.exceptions.InvalidSeatException;
 import com.showclix.seating.exceptions.MaximumRequestsExceededException;
+import com.showclix.seating.util.Settings;
 
 /**
  * Seating Tests
@@ -139,4 +150,846 @@ public class SeatingTest {
 
 	}
 
+	/**
+	 * Fills 200 random seating arrangements with random pre-reservations and
+	 * group requests using both the priority list scan and the free run index
+	 * and checks that every placement is the same, including after seats have
+	 * been given back
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testIndexMatchesScan() throws InvalidSeatException, MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 200; i++) {
+			int rows = rand.nextInt(14) + 1;
+			int columns = rand.nextInt(150) + 1;
+			Seating scan = new Seating(rows, columns, SearchMode.SCAN);
+			Seating index = new Seating(rows, columns, SearchMode.INDEX);
+
+			for (int j = rand.nextInt(rows * columns / 2 + 1); j > 0; j--) {
+				int row = rand.nextInt(rows) + 1;
+				int column = rand.nextInt(columns) + 1;
+				if (!scan.isSeatReserved(row, column)) {
+					scan.preReserveSeat(row, column);
+					index.preReserveSeat(row, column);
+				}
+			}
+
+			for (int j = 0; j < rows * columns; j++) {
+				int total = rand.nextInt(10) + 1;
+				assertEquals(scan.requestSeats(total), index.requestSeats(total));
+
+				// Every now and then give a seat back through the Seat view
+				if (rand.nextInt(4) == 0) {
+					int row = rand.nextInt(rows);
+					int column = rand.nextInt(columns);
+					scan.getSeat(row, column).removeReservation();
+					index.getSeat(row, column).removeReservation();
+				}
+			}
+			assertEquals(scan.getAvailableSeats(), index.getAvailableSeats());
+		}
+	}
+
+	/**
+	 * Fills random seating arrangements using the lazy index and the full
+	 * index and checks that every placement is the same, with Manhattan
+	 * distance, a coarse euclidean distance that makes many seeds tie and a
+	 * balcony penalty, including after seats have been released and the lazy
+	 * chart has been restored from a snapshot. Also checks that a very large
+	 * lazy chart only creates the rows it uses
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testLazyMatchesIndex() throws Exception {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			int rows = rand.nextInt(20) + 1;
+			int columns = rand.nextInt(150) + 1;
+			SeatScorer scorer = SeatScorers.MANHATTAN;
+			if (i % 3 == 1) {
+				scorer = SeatScorers.euclidean(rand.nextInt(3) + 1);
+			} else if (i % 3 == 2) {
+				scorer = SeatScorers.balcony(SeatScorers.euclidean(1), rand.nextInt(rows), rand.nextInt(20));
+			}
+			Seating index = new Seating(rows, columns, SearchMode.INDEX, false, scorer);
+			Seating lazy = new Seating(rows, columns, SearchMode.LAZY, false, scorer);
+
+			for (int j = rand.nextInt(rows * columns / 4 + 1); j > 0; j--) {
+				int row = rand.nextInt(rows) + 1;
+				int column = rand.nextInt(columns) + 1;
+				if (!index.isSeatReserved(row, column)) {
+					index.preReserveSeat(row, column);
+					lazy.preReserveSeat(row, column);
+				}
+			}
+			for (int j = 0; j < rows * columns; j++) {
+				int total = rand.nextInt(10) + 1;
+				assertEquals(index.requestSeats(total), lazy.requestSeats(total));
+				if (rand.nextInt(4) == 0) {
+					int row = rand.nextInt(rows) + 1;
+					int column = rand.nextInt(columns) + 1;
+					index.release(row, column);
+					lazy.release(row, column);
+				}
+				if (j == rows * columns / 2 && scorer == SeatScorers.MANHATTAN) {
+					lazy = Seating.fromBytes(lazy.toBytes());
+				}
+			}
+			assertEquals(index.getAvailableSeats(), lazy.getAvailableSeats());
+		}
+
+		// An untouched row breaks ties between equally scored seeds the same
+		// way as every other mode
+		for (SearchMode searchMode : SearchMode.values()) {
+			Seating seating = new Seating(2, 4, searchMode, false, SeatScorers.euclidean(1));
+			assertEquals("R1C2 - R1C3", seating.requestSeats(2));
+			assertEquals("R1C4", seating.requestSeats(1));
+			assertEquals("R2C2", seating.requestSeats(1));
+			assertEquals("R2C3 - R2C4", seating.requestSeats(2));
+		}
+
+		// Ten million seats, of which only the first few rows are used
+		Seating venue = new Seating(10000, 1000, SearchMode.LAZY);
+		assertEquals("R1C499 - R1C502", venue.requestSeats(4));
+		for (int j = 0; j < 1000; j++) {
+			venue.requestSeats(10);
+		}
+		assertEquals(10000000 - 10004, venue.getAvailableSeats());
+		assertTrue(venue.getMemoryEstimate() < new Seating(1000, 1000, SearchMode.INDEX).getMemoryEstimate());
+	}
+
+	/**
+	 * Fills random seating arrangements in SearchMode.OPTIMAL and checks
+	 * every placement against trying every block in the chart, using both
+	 * Manhattan distance and a coarse euclidean distance that makes many
+	 * blocks tie
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testOptimalPlacement() throws InvalidSeatException, MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 200; i++) {
+			int rows = rand.nextInt(14) + 1;
+			int columns = rand.nextInt(60) + 1;
+			SeatScorer scorer = i % 2 == 0 ? SeatScorers.MANHATTAN : SeatScorers.euclidean(rand.nextInt(3) + 1);
+			Seating seating = new Seating(rows, columns, SearchMode.OPTIMAL, i % 4 == 1, scorer);
+
+			for (int j = rand.nextInt(rows * columns / 2 + 1); j > 0; j--) {
+				int row = rand.nextInt(rows) + 1;
+				int column = rand.nextInt(columns) + 1;
+				if (!seating.isSeatReserved(row, column)) {
+					seating.preReserveSeat(row, column);
+				}
+			}
+			for (int j = 0; j < rows * columns; j++) {
+				int total = rand.nextInt(10) + 1;
+				SeatRange expected = lowestTotalBlock(seating, scorer, rows, columns, total);
+				assertEquals(expected.toString(), seating.requestSeats(total));
+				if (rand.nextInt(4) == 0) {
+					seating.release(rand.nextInt(rows) + 1, rand.nextInt(columns) + 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tries every free block in the chart and returns the first one, by row
+	 * and then column, whose seats have the lowest total score
+	 */
+	private static SeatRange lowestTotalBlock(Seating seating, SeatScorer scorer, int rows, int columns, int total) throws InvalidSeatException {
+		SeatRange best = new SeatRange();
+		long bestScore = Long.MAX_VALUE;
+		for (int row = 0; row < rows; row++) {
+			for (int start = 0; start + total <= columns; start++) {
+				long score = 0;
+				for (int column = start; column < start + total && score < Long.MAX_VALUE; column++) {
+					score = seating.isSeatReserved(row + 1, column + 1) ? Long.MAX_VALUE : score + scorer.score(row, column, rows, columns);
+				}
+				if (score < bestScore) {
+					bestScore = score;
+					best = new SeatRange(row, start, start + total - 1);
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Checks that the counting sort puts the seats in the same order as
+	 * sorting them by score and seat number, and that the free run index
+	 * still finds the same placements as the priority list scan when seats
+	 * are scored with a balcony and a coarse euclidean distance that gives
+	 * many seats in a row the same score
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testSeatScorers() throws InvalidSeatException, MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 200; i++) {
+			int rows = rand.nextInt(14) + 1;
+			int columns = rand.nextInt(150) + 1;
+			SeatScorer scorer = SeatScorers.euclidean(rand.nextInt(3) + 1);
+			if (i % 2 == 0) {
+				scorer = SeatScorers.balcony(scorer, rand.nextInt(rows), rand.nextInt(50));
+			}
+
+			int[] order = PriorityOrder.sortSeats(scorer, rows, columns);
+			for (int j = 1; j < order.length; j++) {
+				int previous = scorer.score(order[j - 1] / columns, order[j - 1] % columns, rows, columns);
+				int score = scorer.score(order[j] / columns, order[j] % columns, rows, columns);
+				assertTrue(previous < score || previous == score && order[j - 1] < order[j]);
+			}
+
+			Seating scan = new Seating(rows, columns, SearchMode.SCAN, false, scorer);
+			Seating index = new Seating(rows, columns, SearchMode.INDEX, false, scorer);
+			for (int j = rand.nextInt(rows * columns / 2 + 1); j > 0; j--) {
+				int row = rand.nextInt(rows) + 1;
+				int column = rand.nextInt(columns) + 1;
+				if (!scan.isSeatReserved(row, column)) {
+					scan.preReserveSeat(row, column);
+					index.preReserveSeat(row, column);
+				}
+			}
+			for (int j = 0; j < rows * columns; j++) {
+				int total = rand.nextInt(10) + 1;
+				assertEquals(scan.requestSeats(total), index.requestSeats(total));
+				if (rand.nextInt(4) == 0) {
+					int row = rand.nextInt(rows) + 1;
+					int column = rand.nextInt(columns) + 1;
+					scan.release(row, column);
+					index.release(row, column);
+				}
+			}
+		}
+
+		// Seats in the balcony are only given out once the floor is full
+		Seating seating = new Seating(4, 11, SearchMode.INDEX, false, SeatScorers.balcony(SeatScorers.MANHATTAN, 2, 100));
+		assertEquals("R1C5 - R1C7", seating.requestSeats(3));
+		assertEquals("R2C5 - R2C7", seating.requestSeats(3));
+		assertEquals("R1C2 - R1C4", seating.requestSeats(3));
+		assertEquals("R1C8 - R1C10", seating.requestSeats(3));
+		assertEquals("R2C2 - R2C4", seating.requestSeats(3));
+		assertEquals("R2C8 - R2C10", seating.requestSeats(3));
+		assertEquals("R1C1", seating.requestSeats(1));
+		assertEquals("R1C11", seating.requestSeats(1));
+		assertEquals("R2C1", seating.requestSeats(1));
+		assertEquals("R2C11", seating.requestSeats(1));
+		assertEquals("R3C6", seating.requestSeats(1));
+
+		// A configured class without a no argument constructor is reported the
+		// same as one that does not exist
+		for (String name : new String[] { "java.lang.Integer", "com.showclix.NoSuchScorer" }) {
+			Properties properties = new Properties();
+			properties.setProperty("seating.score", name);
+			try {
+				SeatScorers.fromSettings(Settings.getInstance().override(properties));
+				fail(name + " should not be a seat scorer");
+			} catch (IllegalArgumentException e) {
+				assertEquals("Could not create the seat scorer " + name, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Checks that changes made through a Seat handed out by the seating chart
+	 * are written through to the chart and picked up by the next search
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testSeatView() throws InvalidSeatException, MaximumRequestsExceededException {
+		Seating seating = new Seating(3, 11);
+
+		assertEquals("R1C5 - R1C7", seating.requestSeats(3));
+		assertEquals(true, seating.getSeat(0, 5).isReserved());
+		assertEquals('O', seating.getSeat(0, 5).getSeatStatusSymbol());
+
+		seating.getSeat(0, 5).removeReservation();
+		assertEquals(false, seating.isSeatReserved(1, 6));
+		assertEquals("R1C6", seating.requestSeats(1));
+
+		seating.getSeat(1, 5).setPreReservation();
+		assertEquals('X', seating.getSeat(1, 5).getSeatStatusSymbol());
+		assertEquals("R3C5 - R3C7", seating.requestSeats(3));
+		assertEquals("R1C2 - R1C4", seating.requestSeats(3));
+	}
+
+	/**
+	 * Checks that SeatRange results hold the same seats as the labels
+	 * returned by requestSeats(int), reusing one range for every request
+	 * 
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testSeatRange() throws MaximumRequestsExceededException {
+		Random rand = new Random();
+		SeatRange range = new SeatRange();
+		for (int i = 0; i < 100; i++) {
+			int rows = rand.nextInt(10) + 1;
+			int columns = rand.nextInt(100) + 1;
+			Seating labels = new Seating(rows, columns);
+			Seating ranges = new Seating(rows, columns);
+			for (int j = 0; j < rows * columns; j++) {
+				int total = rand.nextInt(10) + 1;
+				String label = labels.requestSeats(total);
+				assertEquals(!label.equals("Not Available"), ranges.requestSeats(total, range));
+				assertEquals(label, range.toString());
+				assertEquals(range.isAvailable() ? total : 0, range.size());
+			}
+			assertEquals(labels.getAvailableSeats(), ranges.getAvailableSeats());
+		}
+		assertEquals("R2C5 - R2C7", new SeatRange(1, 4, 6).toString());
+		assertEquals(new SeatRange(1, 4, 6), new SeatRange(1, 4, 6));
+	}
+
+	/**
+	 * Reserves and releases groups at random and checks that the chart
+	 * matches a chart built from scratch with the same seats taken, in both
+	 * search modes
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testRelease() throws InvalidSeatException, MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 100; i++) {
+			int rows = rand.nextInt(10) + 1;
+			int columns = rand.nextInt(100) + 1;
+			SearchMode mode = i % 2 == 0 ? SearchMode.INDEX : SearchMode.SCAN;
+			Seating seating = new Seating(rows, columns, mode);
+			List<SeatRange> placed = new ArrayList<SeatRange>();
+
+			for (int j = 0; j < rows * columns; j++) {
+				if (!placed.isEmpty() && rand.nextInt(3) == 0) {
+					SeatRange range = placed.remove(rand.nextInt(placed.size()));
+					assertEquals(range.size(), seating.release(range));
+				} else if (rand.nextInt(10) == 0) {
+					int row = rand.nextInt(rows) + 1;
+					int column = rand.nextInt(columns) + 1;
+					if (!seating.isSeatReserved(row, column)) {
+						seating.preReserveSeat(row, column);
+						assertTrue(seating.release(row, column));
+					}
+				} else {
+					SeatRange range = new SeatRange();
+					if (seating.requestSeats(rand.nextInt(10) + 1, range)) {
+						placed.add(range);
+					}
+				}
+			}
+
+			Seating rebuilt = new Seating(rows, columns, mode);
+			for (int row = 1; row <= rows; row++) {
+				for (int column = 1; column <= columns; column++) {
+					if (seating.isSeatReserved(row, column)) {
+						rebuilt.preReserveSeat(row, column);
+					}
+				}
+			}
+			assertEquals(rebuilt.getAvailableSeats(), seating.getAvailableSeats());
+			for (int j = 0; j < 20; j++) {
+				int total = rand.nextInt(10) + 1;
+				assertEquals(rebuilt.requestSeats(total), seating.requestSeats(total));
+			}
+		}
+	}
+
+	/**
+	 * Pre-reserves seats that are already taken, by a pre-reservation or a
+	 * group, and checks that the available seats only count each seat once,
+	 * including after the seats are released and the chart is recovered from
+	 * it's journal
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testPreReserveTaken() throws Exception {
+		File journalFile = File.createTempFile("seating", ".journal");
+		journalFile.delete();
+		try (SeatingJournal journal = new SeatingJournal(journalFile.getPath())) {
+			Seating seating = journal.recover(3, 11, SearchMode.INDEX, false);
+			seating.preReserveSeat(2, 2);
+			seating.preReserveSeat(2, 2);
+			assertEquals(32, seating.getAvailableSeats());
+			assertEquals("R1C5 - R1C7", seating.requestSeats(3));
+			seating.preReserveSeat(1, 6);
+			assertEquals(29, seating.getAvailableSeats());
+
+			assertTrue(seating.release(2, 2));
+			assertEquals(false, seating.release(2, 2));
+			assertEquals(3, seating.release(1, 5, 7));
+			assertEquals(33, seating.getAvailableSeats());
+			seating.preReserveSeat(3, 11);
+			assertEquals(32, seating.getAvailableSeats());
+		}
+		try (SeatingJournal journal = new SeatingJournal(journalFile.getPath())) {
+			assertEquals(32, journal.recover(3, 11, SearchMode.INDEX, false).getAvailableSeats());
+		} finally {
+			journalFile.delete();
+		}
+	}
+
+	/**
+	 * Collects statistics while filling a chart and checks the counts per
+	 * group size, the search costs and that they can be read over JMX
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testStatistics() throws Exception {
+		Seating seating = new Seating(3, 11);
+		SeatingStats stats = new SeatingStats(10);
+		seating.setStatistics(stats);
+		seating.preReserveSeat(1, 6);
+		seating.requestSeats(3);
+		seating.requestSeats(3);
+		seating.requestSeats(10);
+		seating.requestSeats(10);
+		seating.requestSeats(1);
+
+		assertEquals(5, stats.getRequests());
+		assertEquals(2, stats.getPlacedBySize()[3]);
+		assertEquals(1, stats.getPlacedBySize()[10]);
+		assertEquals(1, stats.getNotAvailableBySize()[10]);
+		assertEquals(1, stats.getPlacedBySize()[1]);
+		assertTrue(stats.getCandidatesVisited() >= 4);
+		assertTrue(stats.getLatencyP50Nanos() <= stats.getLatencyP99Nanos());
+		assertTrue(stats.getLatencyP99Nanos() <= stats.getLatencyP999Nanos());
+
+		stats.register("test");
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("com.showclix.seating:type=SeatingStats,name=\"test\"");
+			assertEquals(5L, server.getAttribute(name, "Requests"));
+		} finally {
+			stats.unregister();
+		}
+
+		stats.reset();
+		seating.setStatistics(null);
+		seating.requestSeats(1);
+		assertEquals(0, stats.getRequests());
+	}
+
+	/**
+	 * Checks that every latency is counted in a bucket whose highest value is
+	 * at least the latency and within about 6% of it
+	 */
+	@Test
+	public void testLatencyBuckets() {
+		Random rand = new Random();
+		for (int i = 0; i < 10000; i++) {
+			long value = rand.nextLong() >>> (rand.nextInt(63) + 1);
+			long highest = LatencyHistogram.highestValue(LatencyHistogram.bucket(value));
+			assertTrue(highest >= value);
+			assertTrue(highest - value <= value / 16);
+		}
+	}
+
+	/**
+	 * Places random batches of groups on 200 random seating arrangements and
+	 * checks that the batch results match placing the same groups one at a
+	 * time
+	 * 
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testBatchMatchesSequential() throws MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 200; i++) {
+			int rows = rand.nextInt(14) + 1;
+			int columns = rand.nextInt(40) + 1;
+			Seating sequential = new Seating(rows, columns);
+			Seating batch = new Seating(rows, columns);
+
+			int[] groups = new int[rows * columns / 2 + 1];
+			for (int j = 0; j < groups.length; j++) {
+				groups[j] = rand.nextInt(12) + 1;
+			}
+			int[] results = batch.requestSeats(groups);
+
+			for (int j = 0; j < groups.length; j++) {
+				if (groups[j] > 10) {
+					assertEquals(Seating.EXCEEDS_MAXIMUM, results[2 * j]);
+				} else {
+					assertEquals(sequential.requestSeats(groups[j]), batch.getResultLabel(results[2 * j], results[2 * j + 1]));
+				}
+			}
+			assertEquals(sequential.getAvailableSeats(), batch.getAvailableSeats());
+		}
+	}
+
+	/**
+	 * Has 8 threads place groups on the same concurrent seating chart at the
+	 * same time and then checks that no seat was given to more than one group
+	 * and that the number of available seats is still correct
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		final int rows = 60;
+		final int columns = 50;
+		final Seating seating = new Seating(rows, columns, SearchMode.INDEX, true);
+
+		final List<int[]> placements = new ArrayList<int[]>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			final Random rand = new Random(i);
+			final int[] groups = new int[rows * columns / 8];
+			for (int j = 0; j < groups.length; j++) {
+				groups[j] = rand.nextInt(10) + 1;
+			}
+			final int[] results = new int[groups.length * 2];
+			placements.add(results);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < groups.length; j++) {
+						int[] result = seating.requestSeats(new int[] { groups[j] });
+						results[2 * j] = result[0];
+						results[2 * j + 1] = result[1];
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		boolean[] taken = new boolean[rows * columns];
+		int reserved = 0;
+		for (int[] results : placements) {
+			for (int j = 0; j < results.length; j += 2) {
+				for (int seat = results[j]; seat >= 0 && seat <= results[j + 1]; seat++) {
+					assertEquals(false, taken[seat]);
+					taken[seat] = true;
+					reserved++;
+				}
+			}
+		}
+		assertEquals(rows * columns - reserved, seating.getAvailableSeats());
+		for (int seat = 0; seat < taken.length; seat++) {
+			assertEquals(taken[seat], seating.isSeatReserved(seat / columns + 1, seat % columns + 1));
+		}
+	}
+
+	/**
+	 * Creates a couple of large seating arrangements and checks that the
+	 * parallel scan of the priority list finds the same placements as the
+	 * single threaded scan
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testParallelScanMatchesScan() throws InvalidSeatException, MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 5; i++) {
+			int rows = rand.nextInt(100) + 50;
+			int columns = rand.nextInt(300) + 100;
+			Seating scan = new Seating(rows, columns, SearchMode.SCAN);
+			Seating parallel = new Seating(rows, columns, SearchMode.SCAN);
+			scan.setParallelThreshold(Integer.MAX_VALUE);
+			parallel.setParallelThreshold(0);
+
+			for (int j = rows * columns / 3; j > 0; j--) {
+				int row = rand.nextInt(rows) + 1;
+				int column = rand.nextInt(columns) + 1;
+				if (!scan.isSeatReserved(row, column)) {
+					scan.preReserveSeat(row, column);
+					parallel.preReserveSeat(row, column);
+				}
+			}
+
+			for (int j = 0; j < 500; j++) {
+				int total = rand.nextInt(10) + 1;
+				assertEquals(scan.requestSeats(total), parallel.requestSeats(total));
+			}
+		}
+	}
+
+	/**
+	 * Grows seating charts in every search mode with reservations and
+	 * pre-reservations on them and checks that the seats stay taken and that
+	 * groups are then placed exactly as on a new chart of the larger size with
+	 * the same seats taken
+	 * 
+	 * @throws InvalidSeatException
+	 * @throws MaximumRequestsExceededException
+	 */
+	@Test
+	public void testResize() throws InvalidSeatException, MaximumRequestsExceededException {
+		Random rand = new Random();
+		for (int i = 0; i < 40; i++) {
+			SearchMode mode = SearchMode.values()[i % SearchMode.values().length];
+			int rows = rand.nextInt(10) + 1;
+			int columns = rand.nextInt(70) + 1;
+			Seating seating = new Seating(rows, columns, mode);
+			for (int j = rand.nextInt(rows * columns / 4 + 1); j > 0; j--) {
+				int row = rand.nextInt(rows) + 1;
+				int column = rand.nextInt(columns) + 1;
+				if (!seating.isSeatReserved(row, column)) {
+					seating.preReserveSeat(row, column);
+				}
+			}
+			for (int j = rand.nextInt(20); j > 0; j--) {
+				seating.requestSeats(rand.nextInt(10) + 1);
+			}
+
+			int newRows = rows + rand.nextInt(5);
+			int newColumns = columns + rand.nextInt(70);
+			Seating expected = new Seating(newRows, newColumns, mode);
+			for (int row = 1; row <= rows; row++) {
+				for (int column = 1; column <= columns; column++) {
+					if (seating.isSeatReserved(row, column)) {
+						expected.preReserveSeat(row, column);
+					}
+				}
+			}
+			seating.resize(newRows, newColumns);
+			assertEquals(newRows, seating.getRowCount());
+			assertEquals(newColumns, seating.getSeatCount());
+			assertEquals(expected.getAvailableSeats(), seating.getAvailableSeats());
+			for (int row = 1; row <= newRows; row++) {
+				for (int column = 1; column <= newColumns; column++) {
+					assertEquals(expected.isSeatReserved(row, column), seating.isSeatReserved(row, column));
+				}
+			}
+			for (int j = 0; j < 100; j++) {
+				int total = rand.nextInt(10) + 1;
+				assertEquals(expected.requestSeats(total), seating.requestSeats(total));
+			}
+		}
+
+		Seating seating = new Seating(3, 11);
+		try {
+			seating.resize(2, 11);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+			assertEquals(3, seating.getRowCount());
+		}
+	}
+
+	/**
+	 * Grows a concurrent seating chart while many threads are placing groups
+	 * on it and checks that no seat was given out twice
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentResize() throws Exception {
+		final Seating seating = new Seating(20, 50, SearchMode.INDEX, true);
+		final List<SeatRange> placed = new ArrayList<SeatRange>();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					List<SeatRange> ranges = new ArrayList<SeatRange>();
+					Random rand = new Random();
+					try {
+						for (int j = 0; j < 2000; j++) {
+							SeatRange range = new SeatRange();
+							if (seating.requestSeats(rand.nextInt(10) + 1, range)) {
+								ranges.add(range);
+							}
+						}
+					} catch (MaximumRequestsExceededException e) {
+						throw new IllegalStateException(e);
+					}
+					synchronized (placed) {
+						placed.addAll(ranges);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int size = 1; size <= 20; size++) {
+			seating.resize(20 + size * 5, 50 + size * 10);
+			Thread.yield();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		int rows = seating.getRowCount();
+		int columns = seating.getSeatCount();
+		boolean[] taken = new boolean[rows * columns];
+		int reserved = 0;
+		for (SeatRange range : placed) {
+			for (int column = range.getStartColumn(); column <= range.getEndColumn(); column++) {
+				assertEquals(false, taken[range.getRow() * columns + column]);
+				taken[range.getRow() * columns + column] = true;
+				reserved++;
+			}
+		}
+		assertEquals(rows * columns - reserved, seating.getAvailableSeats());
+		for (int seat = 0; seat < taken.length; seat++) {
+			assertEquals(taken[seat], seating.isSeatReserved(seat / columns + 1, seat % columns + 1));
+		}
+	}
+
+	/**
+	 * Holds seats and checks that confirmed holds stay reserved, cancelled
+	 * holds are released right away and holds that run out are released
+	 * once they expire, with the available seats following along
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testHolds() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("seating.holds.tick", "1");
+		Seating seating = new Seating(3, 11, Settings.getInstance().override(properties));
+		Seating expected = new Seating(3, 11);
+
+		SeatHold confirmed = seating.holdSeats(3, 60000);
+		SeatHold cancelled = seating.holdSeats(3, 60000);
+		SeatHold expiring = seating.holdSeats(2, 0);
+		assertEquals(expected.requestSeats(3), confirmed.toString());
+		assertEquals(expected.requestSeats(3), cancelled.toString());
+		assertEquals(expected.requestSeats(2), expiring.toString());
+		assertTrue(seating.isSeatHeld(1, 5));
+		assertTrue(seating.getSeat(0, 4).isHeld());
+
+		assertTrue(seating.confirm(confirmed));
+		assertTrue(confirmed.isConfirmed());
+		assertEquals(false, seating.isSeatHeld(1, 5));
+		assertTrue(seating.isSeatReserved(1, 5));
+		assertEquals(false, seating.confirm(confirmed));
+		assertEquals(false, seating.cancel(confirmed));
+
+		assertTrue(seating.cancel(cancelled));
+		assertEquals(false, cancelled.isHeld());
+		assertEquals(false, seating.isSeatReserved(2, 5));
+
+		// The expiring hold runs out within a millisecond tick
+		Thread.sleep(20);
+		assertEquals(33 - 3, seating.getAvailableSeats());
+		assertEquals(0, seating.getHeldSeats());
+		assertTrue(expiring.isExpired());
+		assertEquals(false, seating.confirm(expiring));
+
+		// Released seats go to the next group, which is the same group the
+		// cancelled hold had
+		assertEquals(cancelled.toString(), seating.requestSeats(3));
+		assertEquals(null, new Seating(1, 2).holdSeats(3, 1000));
+
+		// A hold made by another chart is refused without touching this one
+		Seating other = new Seating(3, 11);
+		SeatHold foreign = other.holdSeats(3, 60000);
+		for (int i = 0; i < 2; i++) {
+			try {
+				if (i == 0) {
+					seating.confirm(foreign);
+				} else {
+					seating.cancel(foreign);
+				}
+				fail("A hold from another chart should be refused");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+		assertTrue(foreign.isHeld());
+		assertTrue(other.cancel(foreign));
+
+		// A hold too long to add to the clock never expires
+		SeatHold forever = seating.holdSeats(1, Long.MAX_VALUE);
+		Thread.sleep(5);
+		seating.expireHolds();
+		assertTrue(forever.isHeld());
+	}
+
+	/**
+	 * Has 8 threads hold, confirm, cancel, request and release groups on one
+	 * small concurrent chart while holds keep expiring, and checks that once
+	 * every hold has run out each sale that was not released still has all of
+	 * it's seats, none of them held, and that the available seats add up
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrentHolds() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("seating.holds.tick", "1");
+		properties.setProperty("seating.concurrent", "true");
+		final Seating seating = new Seating(5, 20, Settings.getInstance().override(properties));
+
+		final List<List<SeatRange>> sales = new ArrayList<List<SeatRange>>();
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			final Random rand = new Random(t);
+			final List<SeatRange> sold = new ArrayList<SeatRange>();
+			sales.add(sold);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 2000; i++) {
+							int action = rand.nextInt(4);
+							if (action == 0) {
+								SeatHold hold = seating.holdSeats(rand.nextInt(4) + 1, rand.nextInt(3));
+								if (hold != null && rand.nextBoolean() && seating.confirm(hold)) {
+									sold.add(hold.getRange());
+								} else if (hold != null && rand.nextBoolean()) {
+									seating.cancel(hold);
+								}
+							} else if (action == 1) {
+								SeatRange range = new SeatRange();
+								if (seating.requestSeats(rand.nextInt(4) + 1, range)) {
+									sold.add(range);
+								}
+							} else if (!sold.isEmpty()) {
+								seating.release(sold.remove(rand.nextInt(sold.size())));
+							}
+						}
+					} catch (Throwable e) {
+						synchronized (failures) {
+							failures.add(e);
+						}
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.size());
+
+		// Every hold runs out within a few milliseconds
+		Thread.sleep(20);
+		seating.expireHolds();
+		assertEquals(0, seating.getHeldSeats());
+
+		int soldSeats = 0;
+		for (List<SeatRange> sold : sales) {
+			for (SeatRange range : sold) {
+				for (int column = range.getStartColumn(); column <= range.getEndColumn(); column++) {
+					assertTrue(seating.isSeatReserved(range.getRow() + 1, column + 1));
+					assertEquals(false, seating.isSeatHeld(range.getRow() + 1, column + 1));
+				}
+				soldSeats += range.size();
+			}
+		}
+		assertEquals(100 - soldSeats, seating.getAvailableSeats());
+	}
+
 }
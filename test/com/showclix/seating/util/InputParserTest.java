@@ -0,0 +1,114 @@
+package com.showclix.seating.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.showclix.seating.Seating;
+import com.showclix.seating.exceptions.InvalidSeatException;
+
+/**
+ * Input Parser Tests
+ * 
+ * Checks that seat labels and group sizes are decoded the same way the
+ * original String based parsing did.
+ * 
+ * @version 1.0
+ * 
+ */
+public class InputParserTest {
+
+	private static InputParser parser(String input) {
+		return new InputParser(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	/**
+	 * Reads a line of seat labels followed by group sizes, with Windows line
+	 * endings and extra spaces mixed in
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testParse() throws IOException {
+		InputParser parser = parser("R1C4  R12C106\tR3C9 \r\n3\r\n 1 0\n\nx\n7");
+
+		assertTrue(parser.nextLine());
+		assertTrue(parser.nextSeat());
+		assertEquals(1, parser.getRow());
+		assertEquals(4, parser.getColumn());
+		assertTrue(parser.nextSeat());
+		assertEquals(12, parser.getRow());
+		assertEquals(106, parser.getColumn());
+		assertTrue(parser.nextSeat());
+		assertEquals(3, parser.getRow());
+		assertEquals(9, parser.getColumn());
+		assertFalse(parser.nextSeat());
+
+		assertTrue(parser.nextLine());
+		assertEquals(3, parser.nextNumber());
+		assertTrue(parser.nextLine());
+		assertEquals(10, parser.nextNumber());
+		assertTrue(parser.nextLine());
+		assertEquals(-1, parser.nextNumber());
+		assertTrue(parser.nextLine());
+		assertEquals(-1, parser.nextNumber());
+		assertTrue(parser.nextLine());
+		assertEquals(7, parser.nextNumber());
+		assertFalse(parser.nextLine());
+	}
+
+	/**
+	 * Skips whatever is left of a line that was not read to the end
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSkipLine() throws IOException {
+		InputParser parser = parser("R1C1 R2C2\n5\n");
+		assertTrue(parser.nextLine());
+		assertTrue(parser.nextSeat());
+		assertTrue(parser.nextLine());
+		assertEquals(5, parser.nextNumber());
+		assertFalse(parser.nextLine());
+	}
+
+	/**
+	 * Reads numbers too large for an int, which must not wrap around to a
+	 * small group size or seat
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testOverflow() throws IOException {
+		InputParser parser = parser("R4294967297C2 R2C99999999999\n4294967299\n2147483647\n2147483648\n");
+		assertTrue(parser.nextLine());
+		assertTrue(parser.nextSeat());
+		assertEquals(Integer.MAX_VALUE, parser.getRow());
+		assertEquals(2, parser.getColumn());
+		assertTrue(parser.nextSeat());
+		assertEquals(2, parser.getRow());
+		assertEquals(Integer.MAX_VALUE, parser.getColumn());
+
+		assertTrue(parser.nextLine());
+		assertEquals(Integer.MAX_VALUE, parser.nextNumber());
+		assertTrue(parser.nextLine());
+		assertEquals(Integer.MAX_VALUE, parser.nextNumber());
+		assertTrue(parser.nextLine());
+		assertEquals(Integer.MAX_VALUE, parser.nextNumber());
+		assertFalse(parser.nextLine());
+
+		// Seat labels given to the seating chart directly fail the same way
+		try {
+			new Seating(3, 11).preReserveSeat("R4294967297C2");
+			assertTrue(false);
+		} catch (InvalidSeatException e) {
+			assertTrue(e.getMessage().contains(Integer.toString(Integer.MAX_VALUE - 1)));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.showclix.seating.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Output Tests
+ * 
+ * Checks that buffered output reaches the channel complete and in order.
+ * 
+ * @version 1.0
+ * 
+ */
+public class OutputTest {
+
+	@After
+	public void tearDown() {
+		Output.getInstance().setUnbuffered();
+	}
+
+	/**
+	 * Prints more than fits in the buffer and checks that everything arrives
+	 * in order once flushed, and nothing before
+	 */
+	@Test
+	public void testBuffered() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Output output = Output.getInstance();
+		output.setBuffered(16, 0, Channels.newChannel(out));
+
+		StringBuilder expected = new StringBuilder();
+		output.print('x');
+		expected.append('x');
+		assertEquals(0, out.size());
+
+		for (int i = 0; i < 20; i++) {
+			output.println("R" + i + "C" + i);
+			expected.append("R" + i + "C" + i + "\n");
+		}
+		output.print("caf\u00e9 ");
+		expected.append("caf\u00e9 ");
+		output.println(17);
+		expected.append("17\n");
+
+		output.flush();
+		assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Checks that a buffer without room for a byte is rejected rather than
+	 * failing on the first message
+	 */
+	@Test
+	public void testCapacity() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int capacity : new int[] { 0, -1 }) {
+			try {
+				Output.getInstance().setBuffered(capacity, 0, Channels.newChannel(out));
+				fail("A buffer of " + capacity + " bytes should be rejected");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+			try {
+				Output.open(capacity, Channels.newChannel(out));
+				fail("A buffer of " + capacity + " bytes should be rejected");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+
+		Output output = Output.open(1, Channels.newChannel(out));
+		output.println("R1C1");
+		output.flush();
+		assertEquals("R1C1\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Closes the singleton while it buffers to stdout and checks that stdout
+	 * is still open afterwards
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCloseStdout() throws IOException {
+		Output output = Output.getInstance();
+		output.setBuffered(16, 0);
+		output.close();
+
+		assertTrue(FileDescriptor.out.valid());
+	}
+
+	/**
+	 * Checks that output that could not be written is kept for the next flush
+	 * and that the failure is reported
+	 */
+	@Test
+	public void testFailedFlush() {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final boolean[] broken = { true };
+		final WritableByteChannel target = Channels.newChannel(out);
+		Output output = Output.open(64, new WritableByteChannel() {
+			@Override
+			public int write(ByteBuffer source) throws IOException {
+				if (broken[0]) {
+					throw new IOException("Disk full");
+				}
+				return target.write(source);
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+
+		output.println("R1C1");
+		try {
+			output.flush();
+			fail("The failed write should be reported");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		output.println("R1C2");
+
+		broken[0] = false;
+		output.flush();
+		assertEquals("R1C1\nR1C2\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,118 @@
+package com.showclix.seating.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Settings Tests
+ * 
+ * Checks that settings are read the same way as before they were cached,
+ * and that reloading swaps in the new values and tells the listeners.
+ * 
+ * @version 1.0
+ * 
+ */
+public class SettingsTest {
+
+	private static void write(Path file, String contents) throws IOException {
+		Files.write(file, contents.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Reads every type of setting, then reloads the file and checks that
+	 * snapshots and overrides taken before the reload keep the old values
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testReload() throws IOException {
+		Path file = Files.createTempFile("settings", ".properties");
+		write(file, "rows = 1,000\nname = Main Hall\nconcurrent = yes\nempty =\n");
+		Settings settings = Settings.load(file.toString());
+		assertEquals(1000, settings.getInt("rows", 3));
+		assertEquals(11, settings.getInt("seats", 11));
+		assertEquals("Main Hall", settings.getString("name", ""));
+		assertTrue(settings.getBoolean("concurrent", false));
+		assertTrue(settings.getBoolean("missing", true));
+		assertEquals(7, settings.getInt("empty", 7));
+		assertEquals(5, settings.getInt("name", 5));
+
+		final Settings[] changes = new Settings[2];
+		settings.addListener(new Settings.Listener() {
+			@Override
+			public void settingsChanged(Settings previous, Settings current) {
+				changes[0] = previous;
+				changes[1] = current;
+			}
+		});
+		Settings snapshot = settings.snapshot();
+		Properties overrides = new Properties();
+		overrides.setProperty("seats", "20");
+		Settings overridden = settings.override(overrides);
+
+		// Loading the same values again does not count as a change
+		assertTrue(settings.reload());
+		assertEquals(null, changes[0]);
+
+		write(file, "rows = 2000\nseats = 30\n");
+		assertTrue(settings.reload());
+		assertEquals(2000, settings.getInt("rows", 3));
+		assertEquals(30, settings.getInt("seats", 11));
+		assertEquals("", settings.getString("name", ""));
+		assertEquals(1000, changes[0].getInt("rows", 3));
+		assertEquals(2000, changes[1].getInt("rows", 3));
+		assertEquals(1000, snapshot.getInt("rows", 3));
+		assertEquals(1000, overridden.getInt("rows", 3));
+		assertEquals(20, overridden.getInt("seats", 11));
+		assertFalse(snapshot.reload());
+
+		// A file that can not be read keeps the values already loaded
+		Files.delete(file);
+		assertFalse(settings.reload());
+		assertEquals(2000, settings.getInt("rows", 3));
+	}
+
+	/**
+	 * Watches a file and checks that writing to it reloads the settings
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testWatch() throws IOException, InterruptedException {
+		Path file = Files.createTempFile("settings", ".properties");
+		write(file, "rows = 3\n");
+		Settings settings = Settings.load(file.toString());
+		final BlockingQueue<Settings> changes = new ArrayBlockingQueue<Settings>(16);
+		settings.addListener(new Settings.Listener() {
+			@Override
+			public void settingsChanged(Settings previous, Settings current) {
+				changes.offer(current);
+			}
+		});
+		settings.watch();
+		try {
+			write(file, "rows = 40\n");
+			Settings current = changes.poll(10, TimeUnit.SECONDS);
+			while (current != null && current.getInt("rows", 0) != 40) {
+				current = changes.poll(10, TimeUnit.SECONDS);
+			}
+			assertEquals(40, current.getInt("rows", 0));
+			assertEquals(40, settings.getInt("rows", 0));
+		} finally {
+			settings.stopWatching();
+		}
+	}
+}
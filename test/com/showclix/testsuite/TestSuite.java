@@ -12,14 +12,34 @@ package com.showclix.testsuite;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import com.showclix.driver.SeatingBatchTest;
+import com.showclix.driver.SeatingPipelineTest;
+import com.showclix.driver.SeatingWorkloadTest;
+import com.showclix.seating.HoldTimerTest;
+import com.showclix.seating.LockFreeSeatingTest;
 import com.showclix.seating.SeatTest;
+import com.showclix.seating.SeatingJournalTest;
+import com.showclix.seating.SeatingRegistryTest;
 import com.showclix.seating.SeatingTest;
+import com.showclix.seating.util.InputParserTest;
+import com.showclix.seating.util.OutputTest;
+import com.showclix.seating.util.SettingsTest;
 
 // List of test classes to execute
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	SeatTest.class,
-	SeatingTest.class
+	SeatingTest.class,
+	LockFreeSeatingTest.class,
+	SeatingRegistryTest.class,
+	SeatingJournalTest.class,
+	HoldTimerTest.class,
+	InputParserTest.class,
+	OutputTest.class,
+	SettingsTest.class,
+	SeatingBatchTest.class,
+	SeatingPipelineTest.class,
+	SeatingWorkloadTest.class
 })
 
 public class TestSuite {